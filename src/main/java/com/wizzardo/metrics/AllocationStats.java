@@ -0,0 +1,115 @@
+package com.wizzardo.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.wizzardo.tools.interfaces.Consumer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives allocation rate (growth of young generation between collections) and promotion rate
+ * (growth of old generation during collections) from GC notifications
+ */
+public class AllocationStats implements JvmMonitoring.Recordable, Consumer<GarbageCollectionNotificationInfo> {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final List<MemoryPoolMXBean> youngPools = new ArrayList<>();
+    protected long allocated;
+    protected long promoted;
+    protected long youngBaseline;
+    protected long lastRecord;
+
+    public AllocationStats(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (isYoung(pool.getName()))
+                youngPools.add(pool);
+        }
+        youngBaseline = getYoungUsed();
+        lastRecord = System.nanoTime();
+    }
+
+    public static boolean isYoung(String pool) {
+        return pool.contains("Eden");
+    }
+
+    public static boolean isOld(String pool) {
+        return pool.contains("Old Gen") || pool.contains("Tenured Gen");
+    }
+
+    protected long getYoungUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : youngPools) {
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    @Override
+    public synchronized void consume(GarbageCollectionNotificationInfo info) {
+        GcInfo gcInfo = info.getGcInfo();
+        Map<String, MemoryUsage> before = gcInfo.getMemoryUsageBeforeGc();
+        Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+
+        long youngBefore = 0;
+        long youngAfter = 0;
+        long oldBefore = 0;
+        long oldAfter = 0;
+        for (Map.Entry<String, MemoryUsage> entry : before.entrySet()) {
+            String pool = entry.getKey();
+            MemoryUsage usageAfter = after.get(pool);
+            if (usageAfter == null)
+                continue;
+
+            if (isYoung(pool)) {
+                youngBefore += entry.getValue().getUsed();
+                youngAfter += usageAfter.getUsed();
+            } else if (isOld(pool)) {
+                oldBefore += entry.getValue().getUsed();
+                oldAfter += usageAfter.getUsed();
+            }
+        }
+
+        allocated += Math.max(youngBefore - youngBaseline, 0);
+        youngBaseline = youngAfter;
+        if (oldAfter > oldBefore)
+            promoted += oldAfter - oldBefore;
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        long allocated;
+        long promoted;
+        long now;
+        long elapsed;
+        synchronized (this) {
+            long youngUsed = getYoungUsed();
+            this.allocated += Math.max(youngUsed - youngBaseline, 0);
+            youngBaseline = youngUsed;
+
+            allocated = this.allocated;
+            promoted = this.promoted;
+            this.allocated = 0;
+            this.promoted = 0;
+            now = System.nanoTime();
+            elapsed = now - lastRecord;
+            lastRecord = now;
+        }
+
+        if (elapsed <= 0)
+            return;
+
+        recorder.gauge(jvmMonitoring.metricJvmGcAllocationRate, allocated * 1_000_000_000d / elapsed);
+        recorder.gauge(jvmMonitoring.metricJvmGcPromotionRate, promoted * 1_000_000_000d / elapsed);
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+package com.wizzardo.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits number of distinct tag sets per metric.
+ * Tag sets are tracked as 64-bit hashes in an open-addressing table that starts small and doubles
+ * up to the size needed for the limit, so lookup of an already known combination doesn't allocate.
+ * Combinations above the limit are replaced with {@link #otherTags}.
+ */
+public class CardinalityLimiter {
+    public static final String METRIC_OVERFLOW = "metrics.cardinality.overflow";
+    public static final int MAX_LIMIT = 1 << 20;
+    protected static final int MIN_CAPACITY = 16;
+
+    protected final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+    protected final MetricRegistry registry;
+    protected final int limit;
+    protected final int maxCapacity;
+    protected String[] otherTags = Recorder.Tags.of("cardinality", "other").build();
+
+    public CardinalityLimiter(int limit, MetricRegistry registry) {
+        if (limit <= 0 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("limit must be > 0 and <= " + MAX_LIMIT);
+
+        this.limit = limit;
+        this.registry = registry;
+        // keeps load factor of a full table below 0.5
+        this.maxCapacity = Math.max(Integer.highestOneBit(limit) * 4, MIN_CAPACITY);
+    }
+
+    public String[] limit(String metric, String[] tags) {
+        Series s = series.get(metric);
+        if (s == null) {
+            s = new Series(metric);
+            Series prev = series.putIfAbsent(metric, s);
+            if (prev != null)
+                s = prev;
+        }
+
+        if (s.contains(hash(tags)))
+            return tags;
+
+        s.overflow.increment();
+        return otherTags;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int size(String metric) {
+        Series s = series.get(metric);
+        return s == null ? 0 : s.size;
+    }
+
+    protected static long hash(String[] tags) {
+        return hash(1, tags);
+    }
+
+    protected static long hash(long seed, String[] tags) {
+        long h = seed;
+        for (String tag : tags) {
+            h = h * 1_000_003 + tag.hashCode();
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    protected class Series {
+        final MetricRegistry.Counter overflow;
+        volatile AtomicLongArray hashes = new AtomicLongArray(Math.min(MIN_CAPACITY, maxCapacity));
+        volatile int size;
+
+        Series(String metric) {
+            overflow = registry.counter(METRIC_OVERFLOW, Recorder.Tags.of("metric", metric));
+        }
+
+        /**
+         * @return true if the hash is known or was added within the limit
+         **/
+        boolean contains(long hash) {
+            if (find(hashes, hash) < 0)
+                return true;
+
+            if (size >= limit)
+                return false;
+
+            synchronized (this) {
+                AtomicLongArray hashes = this.hashes;
+                int i = find(hashes, hash);
+                if (i < 0)
+                    return true;
+                if (size >= limit)
+                    return false;
+
+                if ((size + 1) * 2 > hashes.length() && hashes.length() < maxCapacity) {
+                    hashes = grow(hashes);
+                    i = find(hashes, hash);
+                }
+                hashes.set(i, hash);
+                size++;
+                return true;
+            }
+        }
+
+        /**
+         * @return -1 if the hash is in the table, otherwise index of an empty cell for it
+         **/
+        int find(AtomicLongArray hashes, long hash) {
+            int mask = hashes.length() - 1;
+            int i = (int) hash & mask;
+            long h;
+            while ((h = hashes.get(i)) != 0) {
+                if (h == hash)
+                    return -1;
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Readers still probing the old table miss only new hashes and recheck them under the lock
+         **/
+        AtomicLongArray grow(AtomicLongArray hashes) {
+            AtomicLongArray table = new AtomicLongArray(hashes.length() * 2);
+            for (int i = 0; i < hashes.length(); i++) {
+                long h = hashes.get(i);
+                if (h != 0)
+                    table.set(find(table, h), h);
+            }
+            this.hashes = table;
+            return table;
+        }
+    }
+}
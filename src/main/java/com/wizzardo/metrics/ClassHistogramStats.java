@@ -0,0 +1,176 @@
+package com.wizzardo.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Samples heap class histogram ('GC.class_histogram') and reports instances and bytes of the top-N classes by bytes,
+ * and the top-N classes that grew the most since the previous sample, to find leak suspects without heap dumps.
+ * The histogram walks the whole heap in a safepoint, so it is meant to run rarely: runs closer than {@link #minInterval}
+ * to the previous one are skipped, as well as all runs while {@link OverheadGovernor} degrades monitoring.
+ */
+public class ClassHistogramStats implements JvmMonitoring.Recordable {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final DiagnosticCommand command;
+    protected final int topN;
+    protected final long minInterval;
+    protected final boolean live;
+    protected Map<String, long[]> previous;
+    protected long lastRun;
+    protected boolean valid = true;
+
+    public interface Listener {
+        void onClass(String className, long instances, long bytes);
+    }
+
+    public ClassHistogramStats(JvmMonitoring jvmMonitoring, int topN, long minInterval) {
+        this(jvmMonitoring, new DiagnosticCommand(), topN, minInterval, false);
+    }
+
+    /**
+     * @param minInterval minimal time between two runs in millis
+     * @param live        count only live objects, it forces a full gc before the histogram
+     **/
+    public ClassHistogramStats(JvmMonitoring jvmMonitoring, DiagnosticCommand command, int topN, long minInterval, boolean live) {
+        this.jvmMonitoring = jvmMonitoring;
+        this.command = command;
+        this.topN = topN;
+        this.minInterval = minInterval;
+        this.live = live;
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        OverheadGovernor governor = jvmMonitoring.getGovernor();
+        if (governor != null && governor.getLevel() > 0)
+            return;
+
+        long now = System.currentTimeMillis();
+        if (lastRun != 0 && now - lastRun < minInterval)
+            return;
+        lastRun = now;
+
+        String histogram;
+        try {
+            histogram = live ? command.invoke("gcClassHistogram") : command.invoke("gcClassHistogram", "-all");
+        } catch (Exception e) {
+            valid = false;
+            recorder.onError(e);
+            return;
+        }
+
+        final Map<String, long[]> current = new HashMap<>(previous == null ? 1024 : previous.size() * 2);
+        final Map<String, long[]> previous = this.previous;
+        final String[] top = new String[topN];
+        final long[][] topValues = new long[topN][];
+        final String[] growth = new String[topN];
+        final long[][] growthValues = new long[topN][];
+
+        parse(histogram, new Listener() {
+            @Override
+            public void onClass(String className, long instances, long bytes) {
+                long[] values = {instances, bytes};
+                current.put(className, values);
+                insert(top, topValues, className, values);
+
+                if (previous != null) {
+                    long[] prev = previous.get(className);
+                    long[] delta = prev == null ? values : new long[]{instances - prev[0], bytes - prev[1]};
+                    if (delta[1] > 0)
+                        insert(growth, growthValues, className, delta);
+                }
+            }
+        });
+        this.previous = current;
+
+        for (int i = 0; i < topN && top[i] != null; i++) {
+            Recorder.Tags tags = Recorder.Tags.of("class", top[i]);
+            recorder.gauge(jvmMonitoring.metricJvmClassHistogramInstances, topValues[i][0], tags);
+            recorder.gauge(jvmMonitoring.metricJvmClassHistogramBytes, topValues[i][1], tags);
+        }
+        for (int i = 0; i < topN && growth[i] != null; i++) {
+            Recorder.Tags tags = Recorder.Tags.of("class", growth[i]);
+            recorder.gauge(jvmMonitoring.metricJvmClassHistogramGrowthInstances, growthValues[i][0], tags);
+            recorder.gauge(jvmMonitoring.metricJvmClassHistogramGrowthBytes, growthValues[i][1], tags);
+        }
+    }
+
+    /**
+     * Keeps arrays sorted by bytes in descending order, the smallest entry drops out
+     **/
+    protected static void insert(String[] names, long[][] values, String name, long[] value) {
+        int n = names.length;
+        if (n == 0 || names[n - 1] != null && values[n - 1][1] >= value[1])
+            return;
+
+        int i = n - 1;
+        while (i > 0 && (names[i - 1] == null || values[i - 1][1] < value[1])) {
+            names[i] = names[i - 1];
+            values[i] = values[i - 1];
+            i--;
+        }
+        names[i] = name;
+        values[i] = value;
+    }
+
+    /**
+     * Parses output of 'GC.class_histogram' line by line, without splitting it.
+     * Lines look like '   1:   5021   402808  [C' with an optional ' (module)' suffix since JDK 9
+     **/
+    public static void parse(CharSequence s, Listener listener) {
+        int length = s.length();
+        int from = 0;
+        long[] number = new long[1];
+        while (from < length) {
+            int to = from;
+            while (to < length && s.charAt(to) != '\n')
+                to++;
+
+            int i = skipSpaces(s, from, to);
+            int j = readNumber(s, i, to, number);
+            if (j > i && j < to && s.charAt(j) == ':') {
+                i = skipSpaces(s, j + 1, to);
+                j = readNumber(s, i, to, number);
+                long instances = number[0];
+                if (j > i) {
+                    i = skipSpaces(s, j, to);
+                    j = readNumber(s, i, to, number);
+                    long bytes = number[0];
+                    if (j > i) {
+                        i = skipSpaces(s, j, to);
+                        j = i;
+                        while (j < to && s.charAt(j) != ' ' && s.charAt(j) != '\r')
+                            j++;
+                        if (j > i)
+                            listener.onClass(s.subSequence(i, j).toString(), instances, bytes);
+                    }
+                }
+            }
+
+            from = to + 1;
+        }
+    }
+
+    protected static int skipSpaces(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ')
+            from++;
+        return from;
+    }
+
+    protected static int readNumber(CharSequence s, int from, int to, long[] result) {
+        long value = 0;
+        char c;
+        while (from < to && (c = s.charAt(from)) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            from++;
+        }
+        result[0] = value;
+        return from;
+    }
+
+    @Override
+    public boolean isValid() {
+        return valid;
+    }
+}
@@ -0,0 +1,174 @@
+package com.wizzardo.metrics;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reports how many times and for how long threads were blocked on monitors and waited for notification,
+ * as deltas per interval summed per thread group. Threads that were blocked the longest during the interval
+ * are reported individually together with the class of the lock and the group of its owner, unless per-thread metrics are disabled.
+ * Requires thread contention monitoring, which is enabled on creation if it is supported and restored by {@link #stop()}.
+ */
+public class ContentionStats implements JvmMonitoring.Recordable {
+
+    protected final ThreadMXBean threadMXBean;
+    protected final JvmMonitoring jvmMonitoring;
+    protected final boolean timeEnabled;
+    protected final boolean wasEnabled;
+    protected final Map<Long, ThreadState> threads = new HashMap<>(32, 1);
+    protected final Map<String, GroupState> groups = new HashMap<>();
+    protected int tick;
+
+    protected static class ThreadState {
+        String name;
+        String group;
+        long blockedCount;
+        long blockedTime;
+        long waitedCount;
+        long waitedTime;
+        String lock;
+        long lockOwnerId = -1;
+        int tick;
+    }
+
+    protected static class GroupState {
+        final Recorder.Tags tags;
+        long blockedCount;
+        long blockedTime;
+        long waitedCount;
+        long waitedTime;
+
+        GroupState(String group) {
+            tags = Recorder.Tags.of("group", group);
+        }
+    }
+
+    public ContentionStats(ThreadMXBean threadMXBean, JvmMonitoring jvmMonitoring) {
+        this.threadMXBean = threadMXBean;
+        this.jvmMonitoring = jvmMonitoring;
+        boolean supported = threadMXBean.isThreadContentionMonitoringSupported();
+        wasEnabled = supported && threadMXBean.isThreadContentionMonitoringEnabled();
+        if (supported && !wasEnabled)
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        timeEnabled = supported && threadMXBean.isThreadContentionMonitoringEnabled();
+    }
+
+    /**
+     * Disables thread contention monitoring if it was enabled by this instance
+     **/
+    public void stop() {
+        if (timeEnabled && !wasEnabled)
+            threadMXBean.setThreadContentionMonitoringEnabled(false);
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        int tick = ++this.tick;
+        int topN = jvmMonitoring.perThreadMetricsEnabled ? jvmMonitoring.contentionTopN : 0;
+        ThreadState[] top = new ThreadState[topN];
+        long[] topTime = new long[topN];
+
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds());
+        for (ThreadInfo info : infos) {
+            if (info == null)
+                continue;
+
+            long id = info.getThreadId();
+            ThreadState state = threads.get(id);
+            boolean known = state != null;
+            if (!known) {
+                state = new ThreadState();
+                state.name = info.getThreadName();
+                state.group = jvmMonitoring.getThreadGroupName(id, state.name);
+                threads.put(id, state);
+            }
+
+            long blockedCount = info.getBlockedCount();
+            long blockedTime = timeEnabled ? info.getBlockedTime() : 0;
+            long waitedCount = info.getWaitedCount();
+            long waitedTime = timeEnabled ? info.getWaitedTime() : 0;
+
+            // a lock is attributed only while the thread is blocked on it
+            LockInfo lock = info.getThreadState() == Thread.State.BLOCKED && info.getLockName() != null ? info.getLockInfo() : null;
+            if (lock != null) {
+                state.lock = lock.getClassName();
+                state.lockOwnerId = info.getLockOwnerId();
+            } else {
+                state.lock = null;
+                state.lockOwnerId = -1;
+            }
+
+            if (known) {
+                GroupState group = groups.get(state.group);
+                if (group == null)
+                    groups.put(state.group, group = new GroupState(state.group));
+
+                long blocked = blockedTime - state.blockedTime;
+                group.blockedCount += blockedCount - state.blockedCount;
+                group.blockedTime += blocked;
+                group.waitedCount += waitedCount - state.waitedCount;
+                group.waitedTime += waitedTime - state.waitedTime;
+
+                if (topN > 0 && blocked > 0 && blocked > topTime[topN - 1]) {
+                    int i = topN - 1;
+                    while (i > 0 && topTime[i - 1] < blocked) {
+                        top[i] = top[i - 1];
+                        topTime[i] = topTime[i - 1];
+                        i--;
+                    }
+                    top[i] = state;
+                    topTime[i] = blocked;
+                }
+            }
+
+            state.blockedCount = blockedCount;
+            state.blockedTime = blockedTime;
+            state.waitedCount = waitedCount;
+            state.waitedTime = waitedTime;
+            state.tick = tick;
+        }
+
+        for (GroupState group : groups.values()) {
+            recorder.gauge(jvmMonitoring.metricJvmThreadBlockedCount, group.blockedCount, group.tags);
+            recorder.gauge(jvmMonitoring.metricJvmThreadWaitedCount, group.waitedCount, group.tags);
+            if (timeEnabled) {
+                recorder.gauge(jvmMonitoring.metricJvmThreadBlockedTime, group.blockedTime, group.tags);
+                recorder.gauge(jvmMonitoring.metricJvmThreadWaitedTime, group.waitedTime, group.tags);
+            }
+            group.blockedCount = 0;
+            group.blockedTime = 0;
+            group.waitedCount = 0;
+            group.waitedTime = 0;
+        }
+
+        for (int i = 0; i < topN && top[i] != null; i++) {
+            ThreadState state = top[i];
+            ThreadState owner = state.lockOwnerId == -1 ? null : threads.get(state.lockOwnerId);
+            recorder.gauge(jvmMonitoring.metricJvmThreadBlockedTop, topTime[i], Recorder.Tags.of(
+                    "thread", state.name,
+                    "group", state.group,
+                    "lock", state.lock == null ? "unknown" : state.lock,
+                    "owner", owner == null ? "unknown" : owner.group
+            ));
+        }
+
+        Iterator<ThreadState> iterator = threads.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().tick != tick)
+                iterator.remove();
+        }
+    }
+
+    public boolean isTimeEnabled() {
+        return timeEnabled;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+}
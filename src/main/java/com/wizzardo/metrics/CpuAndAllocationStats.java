@@ -21,13 +21,23 @@ public class CpuAndAllocationStats {
     protected long cpuUserTime;
     protected long allocation;
     protected com.sun.management.ThreadMXBean threadMXBean;
+    protected final ScopeStack scopes = new ScopeStack();
 
 
+    /**
+     * ThreadMXBean returns -1 for virtual threads, so counting is disabled for them
+     **/
     public CpuAndAllocationStats() {
-        threadId = new long[]{Thread.currentThread().getId()};
+        Thread thread = Thread.currentThread();
+        boolean virtual = VirtualThreadStats.isVirtual(thread);
+        threadId = new long[]{thread.getId()};
         threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
-        cpuTimeEnabled = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
-        allocationEnabled = threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+        cpuTimeEnabled = !virtual && threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        allocationEnabled = !virtual && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    public ScopeStack getScopes() {
+        return scopes;
     }
 
     public void reset() {
@@ -0,0 +1,36 @@
+package com.wizzardo.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Invokes diagnostic commands (the same as jcmd) on the current JVM through the DiagnosticCommand MBean
+ */
+public class DiagnosticCommand {
+
+    protected static final String[] SIGNATURE = {String[].class.getName()};
+
+    protected final MBeanServer server;
+    protected final ObjectName name;
+
+    public DiagnosticCommand() {
+        try {
+            server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("com.sun.management:type=DiagnosticCommand");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isSupported() {
+        return server.isRegistered(name);
+    }
+
+    /**
+     * @param operation name of the MBean operation, e.g. 'vmNativeMemory' for 'VM.native_memory'
+     **/
+    public String invoke(String operation, String... args) throws Exception {
+        return (String) server.invoke(name, operation, new Object[]{args}, SIGNATURE);
+    }
+}
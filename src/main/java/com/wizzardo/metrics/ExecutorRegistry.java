@@ -0,0 +1,333 @@
+package com.wizzardo.metrics;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Keeps track of registered executors and reports their queue size, active and pool size, completed and rejected tasks.
+ * Queue size of scheduled executors counts only tasks that are due, delayed and periodic tasks that wait for their time are reported as scheduled.
+ * Executors returned by the instrument methods also measure queue wait and execution time of tasks,
+ * using only {@link System#nanoTime()} and optionally only for one of {@link #sampling} tasks.
+ * Registered as a {@link JvmMonitoring.Recordable}, terminated executors are removed after their last collection.
+ */
+public class ExecutorRegistry implements JvmMonitoring.Recordable {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final MetricRegistry registry = new MetricRegistry();
+    protected final ConcurrentHashMap<String, Stats> executors = new ConcurrentHashMap<>();
+    protected volatile int sampling = 1;
+
+    public ExecutorRegistry(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    public class Stats {
+        protected final String name;
+        protected final ExecutorService executor;
+        protected final Recorder.Tags tags;
+        protected final MetricRegistry.Timer queueWait;
+        protected final MetricRegistry.Timer execution;
+        protected final MetricRegistry.Counter rejected;
+        protected RejectedExecutionHandler originalHandler;
+        protected long completed;
+
+        protected Stats(String name, ExecutorService executor) {
+            this.name = name;
+            this.executor = executor;
+            tags = Recorder.Tags.of("executor", name);
+            queueWait = registry.timer(jvmMonitoring.metricExecutorQueueWait, tags);
+            execution = registry.timer(jvmMonitoring.metricExecutorExecution, tags);
+            rejected = registry.counter(jvmMonitoring.metricExecutorRejected, tags);
+        }
+
+        protected void record(Recorder recorder) {
+            if (executor instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+                if (pool instanceof ScheduledThreadPoolExecutor) {
+                    int due = 0;
+                    int scheduled = 0;
+                    for (Runnable runnable : pool.getQueue()) {
+                        if (runnable instanceof Delayed && ((Delayed) runnable).getDelay(TimeUnit.NANOSECONDS) > 0)
+                            scheduled++;
+                        else
+                            due++;
+                    }
+                    recorder.gauge(jvmMonitoring.metricExecutorQueueSize, due, tags);
+                    recorder.gauge(jvmMonitoring.metricExecutorScheduled, scheduled, tags);
+                } else
+                    recorder.gauge(jvmMonitoring.metricExecutorQueueSize, pool.getQueue().size(), tags);
+                recorder.gauge(jvmMonitoring.metricExecutorActive, pool.getActiveCount(), tags);
+                recorder.gauge(jvmMonitoring.metricExecutorPoolSize, pool.getPoolSize(), tags);
+                long completed = pool.getCompletedTaskCount();
+                recorder.gauge(jvmMonitoring.metricExecutorCompleted, completed - this.completed, tags);
+                this.completed = completed;
+            } else if (executor instanceof ForkJoinPool) {
+                ForkJoinPool pool = (ForkJoinPool) executor;
+                recorder.gauge(jvmMonitoring.metricExecutorQueueSize, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount(), tags);
+                recorder.gauge(jvmMonitoring.metricExecutorActive, pool.getActiveThreadCount(), tags);
+                recorder.gauge(jvmMonitoring.metricExecutorPoolSize, pool.getPoolSize(), tags);
+            }
+        }
+    }
+
+    /**
+     * Registers executor to report its state, tasks are not timed
+     **/
+    public Stats register(String name, ExecutorService executor) {
+        Stats stats = new Stats(name, executor);
+        Stats prev = executors.putIfAbsent(name, stats);
+        if (prev != null)
+            throw new IllegalStateException("Executor with name '" + name + "' is already registered");
+
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            stats.originalHandler = pool.getRejectedExecutionHandler();
+            pool.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(stats.originalHandler, stats.rejected));
+        }
+        return stats;
+    }
+
+    /**
+     * Stops reporting the executor and restores its original rejected execution handler unless it was replaced since registration
+     **/
+    public boolean unregister(String name) {
+        Stats stats = executors.remove(name);
+        if (stats == null)
+            return false;
+
+        if (stats.originalHandler != null) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) stats.executor;
+            RejectedExecutionHandler handler = pool.getRejectedExecutionHandler();
+            if (handler instanceof CountingRejectedExecutionHandler && ((CountingRejectedExecutionHandler) handler).rejected == stats.rejected)
+                pool.setRejectedExecutionHandler(stats.originalHandler);
+        }
+
+        registry.remove(stats.queueWait);
+        registry.remove(stats.execution);
+        registry.remove(stats.rejected);
+        return true;
+    }
+
+    /**
+     * Registers the pool and returns a wrapper that times every task submitted through it
+     **/
+    public ExecutorService instrument(String name, ThreadPoolExecutor executor) {
+        return new InstrumentedExecutorService(executor, register(name, executor));
+    }
+
+    public ScheduledExecutorService instrument(String name, ScheduledThreadPoolExecutor executor) {
+        return new InstrumentedScheduledExecutorService(executor, register(name, executor));
+    }
+
+    /**
+     * Only tasks submitted through the wrapper are timed, subtasks forked inside the pool are not
+     **/
+    public ExecutorService instrument(String name, ForkJoinPool executor) {
+        return new InstrumentedExecutorService(executor, register(name, executor));
+    }
+
+    /**
+     * Times only one of given number of tasks, 1 times every task
+     **/
+    public void setSampling(int sampling) {
+        if (sampling < 1)
+            throw new IllegalArgumentException("sampling must be >= 1");
+        this.sampling = sampling;
+    }
+
+    public int getSampling() {
+        return sampling;
+    }
+
+    protected boolean sample() {
+        int sampling = this.sampling;
+        return sampling == 1 || ThreadLocalRandom.current().nextInt(sampling) == 0;
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        for (Stats stats : executors.values()) {
+            stats.record(recorder);
+        }
+        registry.record(recorder);
+
+        for (Stats stats : executors.values()) {
+            if (stats.executor.isTerminated())
+                unregister(stats.name);
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    protected static class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+        protected final RejectedExecutionHandler delegate;
+        protected final MetricRegistry.Counter rejected;
+
+        protected CountingRejectedExecutionHandler(RejectedExecutionHandler delegate, MetricRegistry.Counter rejected) {
+            this.delegate = delegate;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    protected static class TimedRunnable implements Runnable {
+        protected final Runnable runnable;
+        protected final Stats stats;
+        protected long expected;
+
+        protected TimedRunnable(Runnable runnable, Stats stats, long expected) {
+            this.runnable = runnable;
+            this.stats = stats;
+            this.expected = expected;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            stats.queueWait.record(Math.max(start - expected, 0));
+            try {
+                runnable.run();
+            } finally {
+                long end = System.nanoTime();
+                stats.execution.record(end - start);
+                next(start, end);
+            }
+        }
+
+        /**
+         * Updates expected start time for periodic tasks
+         **/
+        protected void next(long start, long end) {
+        }
+    }
+
+    protected static class TimedCallable<V> implements Callable<V> {
+        protected final Callable<V> callable;
+        protected final Stats stats;
+        protected final long expected;
+
+        protected TimedCallable(Callable<V> callable, Stats stats, long expected) {
+            this.callable = callable;
+            this.stats = stats;
+            this.expected = expected;
+        }
+
+        @Override
+        public V call() throws Exception {
+            long start = System.nanoTime();
+            stats.queueWait.record(Math.max(start - expected, 0));
+            try {
+                return callable.call();
+            } finally {
+                stats.execution.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    protected class InstrumentedExecutorService extends AbstractExecutorService {
+        protected final ExecutorService delegate;
+        protected final Stats stats;
+
+        protected InstrumentedExecutorService(ExecutorService delegate, Stats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (sample())
+                command = new TimedRunnable(command, stats, System.nanoTime());
+
+            try {
+                delegate.execute(command);
+            } catch (RejectedExecutionException e) {
+                if (!(delegate instanceof ThreadPoolExecutor))
+                    stats.rejected.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Queue wait of scheduled tasks is the delay between the time a task was due and the time it started
+     **/
+    protected class InstrumentedScheduledExecutorService extends InstrumentedExecutorService implements ScheduledExecutorService {
+        protected final ScheduledExecutorService scheduler;
+
+        protected InstrumentedScheduledExecutorService(ScheduledThreadPoolExecutor delegate, Stats stats) {
+            super(delegate, stats);
+            this.scheduler = delegate;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            if (sample())
+                command = new TimedRunnable(command, stats, System.nanoTime() + unit.toNanos(delay));
+            return scheduler.schedule(command, delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            if (sample())
+                callable = new TimedCallable<>(callable, stats, System.nanoTime() + unit.toNanos(delay));
+            return scheduler.schedule(callable, delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, final long period, final TimeUnit unit) {
+            if (sample())
+                command = new TimedRunnable(command, stats, System.nanoTime() + unit.toNanos(initialDelay)) {
+                    @Override
+                    protected void next(long start, long end) {
+                        expected += unit.toNanos(period);
+                    }
+                };
+            return scheduler.scheduleAtFixedRate(command, initialDelay, period, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, final long delay, final TimeUnit unit) {
+            if (sample())
+                command = new TimedRunnable(command, stats, System.nanoTime() + unit.toNanos(initialDelay)) {
+                    @Override
+                    protected void next(long start, long end) {
+                        expected = end + unit.toNanos(delay);
+                    }
+                };
+            return scheduler.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.wizzardo.metrics;
+
+/**
+ * Decides whether a gauge should be sent: only if it differs from the last sent value by more than epsilon
+ * or if the heartbeat period has passed since it was sent last time.
+ * Last sent values are kept in a primitive open-addressing map keyed by hash of metric name and tags.
+ */
+public class GaugeSuppressor {
+
+    protected final double epsilon;
+    protected final long heartbeatNanos;
+    protected long[] keys = new long[128];
+    protected double[] values = new double[128];
+    protected long[] sent = new long[128];
+    protected int size;
+
+    public GaugeSuppressor(double epsilon, long heartbeatNanos) {
+        this.epsilon = epsilon;
+        this.heartbeatNanos = heartbeatNanos;
+    }
+
+    public synchronized boolean shouldEmit(String metric, String[] tags, double value) {
+        long key = CardinalityLimiter.hash(metric.hashCode(), tags);
+        long now = System.nanoTime();
+        int mask = keys.length - 1;
+        int i = (int) key & mask;
+        long k;
+        while ((k = keys[i]) != 0) {
+            if (k == key) {
+                if (Math.abs(value - values[i]) > epsilon || now - sent[i] >= heartbeatNanos || value != value) {
+                    values[i] = value;
+                    sent[i] = now;
+                    return true;
+                }
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        sent[i] = now;
+        if (++size * 2 > keys.length)
+            resize();
+        return true;
+    }
+
+    protected void resize() {
+        long[] keys = this.keys;
+        double[] values = this.values;
+        long[] sent = this.sent;
+        this.keys = new long[keys.length * 2];
+        this.values = new double[keys.length * 2];
+        this.sent = new long[keys.length * 2];
+        int mask = this.keys.length - 1;
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] == 0)
+                continue;
+
+            int i = (int) keys[j] & mask;
+            while (this.keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = keys[j];
+            this.values[i] = values[j];
+            this.sent[i] = sent[j];
+        }
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public long getHeartbeatNanos() {
+        return heartbeatNanos;
+    }
+}
@@ -0,0 +1,208 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Consumer;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Derived GC metrics: share of wall time spent in GC over the last 1 and 5 minutes,
+ * and a linear regression of post-GC old generation occupancy projected to the time when it reaches max.
+ * Each sample is processed in O(1), results are also passed to registered listeners.
+ */
+public class GcHealthStats implements JvmMonitoring.Recordable {
+
+    protected static final long MINUTE = 60_000_000_000L;
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    protected final List<Consumer<GcHealthStats>> listeners = new CopyOnWriteArrayList<>();
+    protected MemoryPoolMXBean oldPool;
+
+    protected final long[] times = new long[512];
+    protected final long[] gcTimes = new long[512];
+    protected long samples;
+    protected long reference1m;
+    protected long reference5m;
+
+    protected final double[] xs;
+    protected final double[] ys;
+    protected int regressionSamples;
+    protected int regressionHead;
+    protected double sumX, sumY, sumXY, sumXX;
+    protected long regressionBase;
+    protected long lastGcCount = -1;
+    protected long lastCollectionUsed = -1;
+
+    protected volatile double overhead1m;
+    protected volatile double overhead5m;
+    protected volatile double liveSetSlope;
+    protected volatile double timeToOom = -1;
+
+    public GcHealthStats(JvmMonitoring jvmMonitoring) {
+        this(jvmMonitoring, 30);
+    }
+
+    /**
+     * @param regressionWindow number of post-GC samples used for the occupancy trend
+     **/
+    public GcHealthStats(JvmMonitoring jvmMonitoring, int regressionWindow) {
+        this.jvmMonitoring = jvmMonitoring;
+        xs = new double[regressionWindow];
+        ys = new double[regressionWindow];
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (AllocationStats.isOld(pool.getName()))
+                oldPool = pool;
+        }
+        regressionBase = System.nanoTime();
+    }
+
+    public void addListener(Consumer<GcHealthStats> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<GcHealthStats> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        long now = System.nanoTime();
+        long gcTime = 0;
+        long gcCount = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcTime += Math.max(collector.getCollectionTime(), 0);
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+        }
+
+        updateOverhead(now, gcTime);
+        recorder.gauge(jvmMonitoring.metricJvmGcOverhead1m, overhead1m);
+        recorder.gauge(jvmMonitoring.metricJvmGcOverhead5m, overhead5m);
+
+        // collection usage of the old pool changes only after collections of the old generation,
+        // young collections would add the same stale sample again and flatten the trend
+        if (oldPool != null && gcCount != lastGcCount) {
+            lastGcCount = gcCount;
+            MemoryUsage usage = oldPool.getCollectionUsage();
+            if (usage != null && usage.getUsed() != lastCollectionUsed) {
+                lastCollectionUsed = usage.getUsed();
+                updateTrend(now, usage);
+                recorder.gauge(jvmMonitoring.metricJvmGcLiveSetSlope, liveSetSlope);
+                if (timeToOom >= 0)
+                    recorder.gauge(jvmMonitoring.metricJvmGcTimeToOom, timeToOom);
+            }
+        }
+
+        for (Consumer<GcHealthStats> listener : listeners) {
+            listener.consume(this);
+        }
+    }
+
+    protected void updateOverhead(long now, long gcTime) {
+        int capacity = times.length;
+        long n = samples++;
+        times[(int) (n % capacity)] = now;
+        gcTimes[(int) (n % capacity)] = gcTime;
+
+        reference1m = advance(reference1m, n, now - MINUTE);
+        reference5m = advance(reference5m, n, now - 5 * MINUTE);
+        overhead1m = overhead(reference1m, n);
+        overhead5m = overhead(reference5m, n);
+    }
+
+    /**
+     * Moves reference to the latest sample that is not newer than 'since', amortized O(1)
+     **/
+    protected long advance(long reference, long n, long since) {
+        int capacity = times.length;
+        reference = Math.max(reference, n - capacity + 1);
+        while (reference + 1 < n && times[(int) ((reference + 1) % capacity)] <= since)
+            reference++;
+        return reference;
+    }
+
+    protected double overhead(long reference, long n) {
+        int capacity = times.length;
+        int r = (int) (reference % capacity);
+        int i = (int) (n % capacity);
+        long wall = times[i] - times[r];
+        if (wall <= 0)
+            return 0;
+        return (gcTimes[i] - gcTimes[r]) * 1_000_000d * 100 / wall;
+    }
+
+    protected void updateTrend(long now, MemoryUsage usage) {
+        double x = (now - regressionBase) / 1_000_000_000d;
+        double y = usage.getUsed();
+        int window = xs.length;
+        if (regressionSamples == window) {
+            double ox = xs[regressionHead];
+            double oy = ys[regressionHead];
+            sumX -= ox;
+            sumY -= oy;
+            sumXY -= ox * oy;
+            sumXX -= ox * ox;
+        } else {
+            regressionSamples++;
+        }
+        xs[regressionHead] = x;
+        ys[regressionHead] = y;
+        regressionHead = (regressionHead + 1) % window;
+        sumX += x;
+        sumY += y;
+        sumXY += x * y;
+        sumXX += x * x;
+
+        int n = regressionSamples;
+        double d = n * sumXX - sumX * sumX;
+        if (n < 2 || d <= 0) {
+            liveSetSlope = 0;
+            timeToOom = -1;
+            return;
+        }
+
+        liveSetSlope = (n * sumXY - sumX * sumY) / d;
+        long max = oldPool.getUsage().getMax();
+        if (max <= 0)
+            max = oldPool.getUsage().getCommitted();
+
+        timeToOom = liveSetSlope > 0 ? Math.max(max - y, 0) / liveSetSlope : -1;
+    }
+
+    /**
+     * @return percent of wall time spent in GC during the last minute
+     **/
+    public double getOverhead1m() {
+        return overhead1m;
+    }
+
+    /**
+     * @return percent of wall time spent in GC during the last 5 minutes
+     **/
+    public double getOverhead5m() {
+        return overhead5m;
+    }
+
+    /**
+     * @return growth of post-GC old generation occupancy in bytes per second
+     **/
+    public double getLiveSetSlope() {
+        return liveSetSlope;
+    }
+
+    /**
+     * @return projected seconds until post-GC old generation occupancy reaches max, -1 if it doesn't grow
+     **/
+    public double getTimeToOom() {
+        return timeToOom;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package com.wizzardo.metrics;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.wizzardo.tools.interfaces.Consumer;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every garbage collection as it happens: pause duration tagged with gc, cause and action,
+ * and usage of each memory pool before and after the collection.
+ * Also passes every collection to registered consumers.
+ */
+public class GcNotificationListener implements NotificationListener {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final List<NotificationEmitter> emitters = new ArrayList<>();
+    protected final Map<String, Recorder.Tags> tags = new ConcurrentHashMap<>();
+    protected final List<Consumer<GarbageCollectionNotificationInfo>> consumers = new CopyOnWriteArrayList<>();
+    protected volatile boolean recordPauses = true;
+
+    public GcNotificationListener(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    public synchronized void register() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    public synchronized void unregister() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException ignored) {
+            }
+        }
+        emitters.clear();
+    }
+
+    public void addConsumer(Consumer<GarbageCollectionNotificationInfo> consumer) {
+        consumers.add(consumer);
+    }
+
+    public void removeConsumer(Consumer<GarbageCollectionNotificationInfo> consumer) {
+        consumers.remove(consumer);
+    }
+
+    public void setRecordPauses(boolean recordPauses) {
+        this.recordPauses = recordPauses;
+    }
+
+    public boolean isRecordPauses() {
+        return recordPauses;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+            return;
+
+        Recorder recorder = jvmMonitoring.getCollectingRecorder();
+        if (recorder == null)
+            return;
+
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (recordPauses)
+                record(info, recorder);
+
+            for (Consumer<GarbageCollectionNotificationInfo> consumer : consumers) {
+                consumer.consume(info);
+            }
+        } catch (Exception e) {
+            recorder.onError(e);
+        }
+    }
+
+    protected void record(GarbageCollectionNotificationInfo info, Recorder recorder) {
+        GcInfo gcInfo = info.getGcInfo();
+        String gcName = info.getGcName();
+        recorder.histogram(jvmMonitoring.metricJvmGcPause, gcInfo.getDuration(), getTags(gcName, info.getGcCause(), info.getGcAction()));
+
+        Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+        for (Map.Entry<String, MemoryUsage> entry : gcInfo.getMemoryUsageBeforeGc().entrySet()) {
+            MemoryUsage usageAfter = after.get(entry.getKey());
+            if (usageAfter == null)
+                continue;
+
+            Recorder.Tags tags = getTags(gcName, entry.getKey());
+            recorder.histogram(jvmMonitoring.metricJvmGcPoolBefore, entry.getValue().getUsed(), tags);
+            recorder.histogram(jvmMonitoring.metricJvmGcPoolAfter, usageAfter.getUsed(), tags);
+        }
+    }
+
+    protected Recorder.Tags getTags(String gc, String cause, String action) {
+        String key = gc + '|' + cause + '|' + action;
+        Recorder.Tags t = tags.get(key);
+        if (t == null)
+            tags.put(key, t = Recorder.Tags.of("gc", gc, "cause", cause, "action", action));
+        return t;
+    }
+
+    protected Recorder.Tags getTags(String gc, String memoryPool) {
+        String key = gc + '|' + memoryPool;
+        Recorder.Tags t = tags.get(key);
+        if (t == null)
+            tags.put(key, t = Recorder.Tags.of("gc", gc, "memoryPool", memoryPool));
+        return t;
+    }
+}
@@ -0,0 +1,34 @@
+package com.wizzardo.metrics;
+
+/**
+ * Aggregates events of JDK Flight Recorder streamed with jdk.jfr.consumer.RecordingStream.
+ * Event streaming is available since JDK 14, the implementation is packaged in META-INF/versions/14 of the multi-release jar,
+ * this class is a no-op fallback for older versions.
+ */
+public class JfrStats implements JvmMonitoring.Recordable {
+
+    protected final JvmMonitoring jvmMonitoring;
+
+    public JfrStats(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public void start() {
+    }
+
+    public void stop() {
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+    }
+
+    @Override
+    public boolean isValid() {
+        return false;
+    }
+}
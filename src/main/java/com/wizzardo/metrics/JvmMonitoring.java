@@ -1,10 +1,10 @@
 package com.wizzardo.metrics;
 
 import com.wizzardo.metrics.system.*;
-import com.wizzardo.tools.cache.Cache;
 import com.wizzardo.tools.cache.CacheCleaner;
 import com.wizzardo.tools.cache.CacheStatistics;
 import com.wizzardo.tools.cache.StatisticsWithHeapUsageWrapper;
+import com.wizzardo.tools.interfaces.Consumer;
 import com.wizzardo.tools.interfaces.Filter;
 import com.wizzardo.tools.interfaces.Supplier;
 import com.wizzardo.tools.misc.Pair;
@@ -12,7 +12,7 @@ import com.wizzardo.tools.misc.Pair;
 import java.lang.management.*;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -21,11 +21,46 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class JvmMonitoring {
 
     protected Recorder recorder;
-    protected Cache<String, Recordable> cache;
+    protected volatile Recorder collectingRecorder;
+    protected final MetricsSnapshot snapshot = new MetricsSnapshot();
+    protected final ConcurrentHashMap<String, Task> tasks = new ConcurrentHashMap<>();
+    protected volatile ScheduledExecutorService scheduler;
+    protected volatile ExecutorService collector;
+    protected int collectParallelism = 0;
+    protected long collectTimeout = 5000;
+    protected volatile OverheadGovernor governor;
+    protected int governorWindow = 60;
+    protected volatile int intervalMultiplier = 1;
+    protected volatile boolean perThreadMetricsEnabled = true;
+    protected volatile boolean aggregateThreadMetrics = false;
+    protected volatile int threadsTopN = 10;
+    protected boolean profilerSuspended;
+    protected CpuStatReader cpuStatReader;
+    protected GcNotificationListener gcNotificationListener;
+    protected GcHealthStats gcHealthStats;
+    protected MemoryThresholdListener memoryThresholdListener;
+    protected ContentionStats contentionStats;
+    protected final Queue<Consumer<MemoryThresholdListener.Event>> memoryThresholdListeners = new ConcurrentLinkedQueue<>();
+    protected JfrStats jfrStats;
+    protected VirtualThreadStats virtualThreadStats;
+    protected final Queue<Consumer<GcHealthStats>> gcHealthListeners = new ConcurrentLinkedQueue<>();
+    protected volatile long lastTick;
+    protected long tickSecond;
     protected Profiler profiler;
     protected volatile boolean profilerEnabled = false;
+    protected volatile int profilerGeneration;
     protected Queue<Pair<Filter<String>, String>> customThreadGroupNames = new ConcurrentLinkedQueue<>();
+    protected final ThreadRegistry threadRegistry = new ThreadRegistry(this);
+    protected final ExecutorRegistry executorRegistry = new ExecutorRegistry(this);
     protected int interval = 10;
+    protected int gcInterval = 0;
+    protected int memoryInterval = 0;
+    protected int threadsInterval = 0;
+    protected int systemInterval = 0;
+    protected int diskInterval = 60;
+    protected int nativeMemoryInterval = 60;
+    protected int classHistogramInterval = 3600;
+    protected int classHistogramTopN = 20;
     protected String metricJvmMemoryFree = "jvm.memory.free";
     protected String metricJvmMemoryTotal = "jvm.memory.total";
     protected String metricJvmMemoryUsed = "jvm.memory.used";
@@ -38,6 +73,29 @@ public class JvmMonitoring {
     protected String metricJvmGcTimeTotal = "jvm.gc.timeTotal";
     protected String metricJvmGcCount = "jvm.gc.count";
     protected String metricJvmGcTime = "jvm.gc.time";
+    protected String metricJvmGcPause = "jvm.gc.pause";
+    protected String metricJvmGcPoolBefore = "jvm.gc.pool.before";
+    protected String metricJvmGcPoolAfter = "jvm.gc.pool.after";
+    protected String metricJvmGcAllocationRate = "jvm.gc.allocation.rate";
+    protected String metricJvmGcPromotionRate = "jvm.gc.promotion.rate";
+    protected String metricJvmGcOverhead1m = "jvm.gc.overhead.1m";
+    protected String metricJvmGcOverhead5m = "jvm.gc.overhead.5m";
+    protected String metricJvmGcLiveSetSlope = "jvm.gc.live.slope";
+    protected String metricJvmGcTimeToOom = "jvm.gc.oom.eta";
+    protected String metricJvmJfrGcPause = "jvm.jfr.gc.pause";
+    protected String metricJvmJfrSafepointSync = "jvm.jfr.safepoint.sync";
+    protected String metricJvmJfrSafepointPause = "jvm.jfr.safepoint.pause";
+    protected String metricJvmJfrMonitorEnter = "jvm.jfr.monitor.enter";
+    protected String metricJvmJfrThreadPark = "jvm.jfr.thread.park";
+    protected String metricJvmJfrAllocation = "jvm.jfr.allocation";
+    protected String metricJvmJfrCpuUser = "jvm.jfr.cpu.user";
+    protected String metricJvmJfrCpuSystem = "jvm.jfr.cpu.system";
+    protected String metricJvmJfrCpuMachine = "jvm.jfr.cpu.machine";
+    protected String metricJvmVirtualParallelism = "jvm.virtual.scheduler.parallelism";
+    protected String metricJvmVirtualPoolSize = "jvm.virtual.scheduler.pool.size";
+    protected String metricJvmVirtualQueued = "jvm.virtual.scheduler.queued";
+    protected String metricJvmVirtualMounted = "jvm.virtual.mounted";
+    protected String metricJvmVirtualPinned = "jvm.virtual.pinned";
     protected String metricJvmClassesLoaded = "jvm.classes.loaded";
     protected String metricJvmTotal = "jvm.classes.total";
     protected String metricJvmClassesUnloaded = "jvm.classes.unloaded";
@@ -49,30 +107,89 @@ public class JvmMonitoring {
     protected String metricJvmThreadCpuUser = "jvm.thread.cpu.user";
     protected String metricJvmThreadCpuNanos = "jvm.thread.cpu.nanos";
     protected String metricJvmThreadCpuUserNanos = "jvm.thread.cpu.user.nanos";
+    protected String metricJvmThreadGroupAllocation = "jvm.thread.group.allocation";
+    protected String metricJvmThreadGroupCpu = "jvm.thread.group.cpu";
+    protected String metricJvmThreadGroupCpuUser = "jvm.thread.group.cpu.user";
+    protected String metricJvmThreadGroupCpuNanos = "jvm.thread.group.cpu.nanos";
+    protected String metricJvmThreadGroupCpuUserNanos = "jvm.thread.group.cpu.user.nanos";
+    protected String metricJvmThreadBlockedCount = "jvm.thread.blocked.count";
+    protected String metricJvmThreadBlockedTime = "jvm.thread.blocked.time";
+    protected String metricJvmThreadWaitedCount = "jvm.thread.waited.count";
+    protected String metricJvmThreadWaitedTime = "jvm.thread.waited.time";
+    protected String metricJvmThreadBlockedTop = "jvm.thread.blocked.top";
     protected String metricJvmMemoryPoolCommitted = "jvm.mp.committed";
     protected String metricJvmMemoryPoolInit = "jvm.mp.init";
     protected String metricJvmMemoryPoolMax = "jvm.mp.max";
     protected String metricJvmMemoryPoolUsed = "jvm.mp.used";
+    protected String metricJvmMemoryPoolLive = "jvm.mp.live";
+    protected String metricJvmMemoryPoolThresholdExceeded = "jvm.mp.threshold.exceeded";
+    protected String metricJvmNativeMemoryReserved = "jvm.nmt.reserved";
+    protected String metricJvmNativeMemoryCommitted = "jvm.nmt.committed";
+    protected String metricJvmNativeMemoryReservedDelta = "jvm.nmt.reserved.delta";
+    protected String metricJvmNativeMemoryCommittedDelta = "jvm.nmt.committed.delta";
+    protected String metricJvmClassHistogramInstances = "jvm.class.histogram.instances";
+    protected String metricJvmClassHistogramBytes = "jvm.class.histogram.bytes";
+    protected String metricJvmClassHistogramGrowthInstances = "jvm.class.histogram.growth.instances";
+    protected String metricJvmClassHistogramGrowthBytes = "jvm.class.histogram.growth.bytes";
     protected String metricJvmBuffersCount = "jvm.buffers.count";
     protected String metricJvmBuffersMemoryUsed = "jvm.buffers.memory_used";
     protected String metricJvmBuffersCapacity = "jvm.buffers.capacity";
 
+    protected String metricJvmMonitoringCollectTimeout = "jvm.monitoring.collect.timeout";
+    protected String metricJvmMonitoringCollectSkipped = "jvm.monitoring.collect.skipped";
+    protected String metricJvmMonitoringCollectTime = "jvm.monitoring.collect.time";
+    protected String metricJvmMonitoringCollectCpu = "jvm.monitoring.collect.cpu";
+    protected String metricJvmMonitoringCollectAllocation = "jvm.monitoring.collect.allocation";
+    protected String metricJvmMonitoringOverhead = "jvm.monitoring.overhead";
+    protected String metricJvmMonitoringDegradation = "jvm.monitoring.degradation";
+
     protected String metricCacheSize = "cache.size";
     protected String metricCacheHeap = "cache.heap";
     protected String metricCacheLatency = "cache.latency";
     protected String metricCacheLatencyTotal = "cache.latency.total";
     protected String metricCacheCount = "cache.count";
     protected String metricCacheCountTotal = "cache.count.total";
+    protected String metricExecutorQueueSize = "executor.queue.size";
+    protected String metricExecutorScheduled = "executor.scheduled";
+    protected String metricExecutorActive = "executor.active";
+    protected String metricExecutorPoolSize = "executor.pool.size";
+    protected String metricExecutorCompleted = "executor.completed";
+    protected String metricExecutorRejected = "executor.rejected";
+    protected String metricExecutorQueueWait = "executor.queue.wait";
+    protected String metricExecutorExecution = "executor.execution";
     protected boolean withJvmGcMetrics = true;
+    protected boolean withJvmGcNotifications = false;
+    protected boolean withJvmAllocationMetrics = false;
+    protected boolean withJvmGcHealthMetrics = false;
+    protected boolean withJfrMetrics = false;
+    protected long jfrThreshold = 10;
+    protected boolean withVirtualThreadMetrics = false;
+    protected long virtualThreadPinnedThreshold = 20;
     protected boolean withJvmBasicMemoryMetrics = true;
     protected boolean withJvmBuffersMetrics = true;
     protected boolean withJvmMemoryPoolMetrics = true;
+    protected boolean withJvmMemoryThresholds = false;
+    protected boolean withJvmNativeMemoryMetrics = false;
+    protected boolean withJvmClassHistogram = false;
+    protected double memoryUsageThreshold = 0.9;
+    protected double memoryCollectionUsageThreshold = 0.9;
     protected boolean withJvmMemoryMetrics = true;
     protected boolean withJvmClassLoadingMetrics = true;
     protected boolean withJvmCompilationMetrics = true;
     protected boolean withJvmThreadMetrics = true;
+    protected boolean withJvmContentionMetrics = false;
+    protected int contentionTopN = 5;
     protected boolean withCacheMetrics = true;
     protected boolean withSystemMetrics = false;
+    protected boolean withNativeThreadMetrics = false;
+    protected boolean withRegistryMetrics = true;
+    protected boolean withExecutorMetrics = true;
+    protected boolean withMonitoringCostMetrics = false;
+    protected boolean withSnapshot = true;
+    protected int snapshotExpiration = 7200;
+    protected boolean withGaugeSuppression = false;
+    protected double gaugeSuppressionEpsilon = 0;
+    protected int gaugeHeartbeat = 300;
 
     public JvmMonitoring(Recorder recorder) {
         this.recorder = recorder;
@@ -94,46 +211,409 @@ public class JvmMonitoring {
         boolean isValid();
     }
 
+    /**
+     * Passed to {@link Recorder#onError} instead of an Error thrown while collecting, the callback accepts only Exceptions
+     **/
+    public static class CollectionError extends Exception {
+        public CollectionError(String source, Throwable cause) {
+            super("Error while collecting " + source, cause);
+        }
+    }
+
+    protected static class Task {
+        final String name;
+        final Recordable recordable;
+        final int interval;
+        final Recorder.Tags tags;
+        volatile Run current;
+
+        Task(String name, Recordable recordable, int interval, Recorder.Tags tags) {
+            this.name = name;
+            this.recordable = recordable;
+            this.interval = interval;
+            this.tags = tags;
+        }
+    }
+
+    protected class Run implements Runnable {
+        static final int QUEUED = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        final Task task;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        volatile Future<?> future;
+
+        Run(Task task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING))
+                return;
+
+            try {
+                collect(task);
+            } finally {
+                state.set(DONE);
+                task.current = null;
+            }
+        }
+
+        void checkDeadline() {
+            if (state.compareAndSet(QUEUED, DONE)) {
+                task.current = null;
+                recorder.counter(metricJvmMonitoringCollectTimeout, task.tags).increment();
+            } else if (state.get() == RUNNING) {
+                Future<?> future = this.future;
+                if (future != null)
+                    future.cancel(true);
+                recorder.counter(metricJvmMonitoringCollectTimeout, task.tags).increment();
+            }
+        }
+    }
+
     public boolean isStarted() {
-        return true;
+        ScheduledExecutorService scheduler = this.scheduler;
+        return scheduler != null && !scheduler.isShutdown();
     }
 
     public JvmMonitoring addCustomThreadGroupNameResolver(Filter<String> filter, String groupName) {
         customThreadGroupNames.add(new Pair<Filter<String>, String>(filter, groupName));
+        threadRegistry.invalidate();
         return this;
     }
 
     public JvmMonitoring setProfilerEnabled(Boolean profilerEnabled) {
         this.profilerEnabled = profilerEnabled;
         if (!profilerEnabled && profiler != null) {
+            profilerGeneration++;
             profiler.stopProfiling();
         }
         return this;
     }
 
     public void add(String name, Recordable recordable) {
-        boolean put = cache.putIfAbsent(name, recordable);
-        if (!put)
+        add(name, recordable, 0);
+    }
+
+    /**
+     * @param interval collection interval in seconds, values &lt;= 0 fall back to {@link #getInterval()}
+     **/
+    public void add(String name, Recordable recordable, int interval) {
+        Task prev = tasks.putIfAbsent(name, new Task(name, recordable, interval, getRecordableTags(name)));
+        if (prev != null)
             throw new IllegalStateException("Recordable with name '" + name + "' is already registered");
     }
 
-    public void init() {
-        cache = new Cache<String, Recordable>("monitoring", interval) {
+    public boolean remove(String name) {
+        return tasks.remove(name) != null;
+    }
+
+    protected void put(String name, Recordable recordable, int interval) {
+        tasks.put(name, new Task(name, recordable, interval, getRecordableTags(name)));
+    }
+
+    protected int getInterval(Task task) {
+        return (task.interval > 0 ? task.interval : interval) * intervalMultiplier;
+    }
+
+    /**
+     * Starts collection with a tick every second, each Recordable is collected on wall-clock boundaries of its interval
+     **/
+    public synchronized void start() {
+        if (isStarted())
+            return;
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "JvmMonitoring");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long now = System.currentTimeMillis();
+        tickSecond = now / 1000 + 1;
+        scheduler.scheduleAtFixedRate(new Runnable() {
             @Override
-            public void onRemoveItem(String name, Recordable recordable) {
-                recordable.record(recorder);
-                if (recordable.isValid())
-                    put(name, recordable);
+            public void run() {
+                try {
+                    tick();
+                } catch (Throwable e) {
+                    onError("tick", e);
+                }
+            }
+        }, 1000 - now % 1000, 1000, TimeUnit.MILLISECONDS);
+        this.scheduler = scheduler;
+
+        if (collectParallelism > 0) {
+            ThreadPoolExecutor collector = new ThreadPoolExecutor(collectParallelism, collectParallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "JvmMonitoring-collector-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            collector.allowCoreThreadTimeOut(true);
+            this.collector = collector;
+        }
+    }
+
+    public synchronized void stop() {
+        ScheduledExecutorService scheduler = this.scheduler;
+        if (scheduler == null)
+            return;
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(interval, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.scheduler = null;
+
+        ExecutorService collector = this.collector;
+        if (collector != null) {
+            collector.shutdownNow();
+            this.collector = null;
+        }
+
+        if (gcNotificationListener != null) {
+            gcNotificationListener.unregister();
+            gcNotificationListener = null;
+        }
+
+        if (memoryThresholdListener != null) {
+            memoryThresholdListener.unregister();
+            memoryThresholdListener = null;
+        }
+
+        if (contentionStats != null) {
+            contentionStats.stop();
+            contentionStats = null;
+        }
+
+        if (jfrStats != null) {
+            jfrStats.stop();
+            jfrStats = null;
+        }
+
+        if (virtualThreadStats != null) {
+            virtualThreadStats.stop();
+            virtualThreadStats = null;
+        }
+    }
+
+    /**
+     * Wall-clock time in millis of the last tick that collected anything, shared by all Recordables of that tick
+     **/
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    protected void tick() {
+        long second = tickSecond++;
+        threadRegistry.nextTick();
+        boolean ran = false;
+        for (Task task : tasks.values()) {
+            if (second % getInterval(task) == 0) {
+                if (!ran) {
+                    lastTick = second * 1000;
+                    ran = true;
+                }
+                run(task);
+            }
+        }
+
+        OverheadGovernor governor = this.governor;
+        if (governor != null && second % governorWindow == 0)
+            governor.evaluate(recorder);
+
+        if (withSnapshot && snapshotExpiration > 0 && second % 60 == 0)
+            snapshot.evict(second * 1000 - snapshotExpiration * 1000L);
+    }
+
+    /**
+     * Monitoring may use at most given fraction of one core (e.g. 0.005 for 0.5%), otherwise it degrades itself,
+     * see {@link OverheadGovernor}. 0 disables the governor
+     **/
+    public void setOverheadBudget(double budget) {
+        OverheadGovernor governor = this.governor;
+        this.governor = budget > 0 ? new OverheadGovernor(this, budget) : null;
+        if (governor != null && governor.getLevel() != 0)
+            applyDegradation(0);
+    }
+
+    public double getOverheadBudget() {
+        OverheadGovernor governor = this.governor;
+        return governor == null ? 0 : governor.getBudget();
+    }
+
+    public OverheadGovernor getGovernor() {
+        return governor;
+    }
+
+    protected synchronized void applyDegradation(int level) {
+        if (level >= 1 && profilerEnabled) {
+            profilerSuspended = true;
+            setProfilerEnabled(false);
+        } else if (level < 1 && profilerSuspended) {
+            profilerSuspended = false;
+            setProfilerEnabled(true);
+        }
+
+        perThreadMetricsEnabled = level < 2;
+        if (cpuStatReader != null)
+            cpuStatReader.setPerCoreEnabled(level < 2);
+
+        OverheadGovernor governor = this.governor;
+        intervalMultiplier = level >= 3 && governor != null ? governor.getIntervalMultiplier() : 1;
+    }
+
+    /**
+     * Collects the task on the calling thread or, if {@link #collectParallelism} &gt; 0, on the collector pool with a deadline of {@link #collectTimeout} ms.
+     * A task that is still queued or running from the previous tick is skipped.
+     **/
+    protected void run(Task task) {
+        ExecutorService collector = this.collector;
+        ScheduledExecutorService scheduler = this.scheduler;
+        if (collector == null || scheduler == null) {
+            collect(task);
+            return;
+        }
+
+        if (task.current != null) {
+            recorder.counter(metricJvmMonitoringCollectSkipped, task.tags).increment();
+            return;
+        }
+
+        final Run run = new Run(task);
+        task.current = run;
+        try {
+            run.future = collector.submit(run);
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    run.checkDeadline();
+                }
+            }, collectTimeout, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            task.current = null;
+        }
+    }
+
+    protected Recorder getCollectingRecorder() {
+        if (!withSnapshot && !withGaugeSuppression)
+            return recorder;
+
+        Recorder collectingRecorder = this.collectingRecorder;
+        if (collectingRecorder == null && recorder != null)
+            this.collectingRecorder = collectingRecorder = new SnapshotRecorder(recorder,
+                    withSnapshot ? snapshot : null,
+                    withGaugeSuppression ? new GaugeSuppressor(gaugeSuppressionEpsilon, TimeUnit.SECONDS.toNanos(gaugeHeartbeat)) : null
+            );
+        return collectingRecorder;
+    }
+
+    /**
+     * Last collected values of all series, can be polled at any rate without touching MXBeans
+     **/
+    public MetricsSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    protected void collect(Task task) {
+        OverheadGovernor governor = this.governor;
+        CpuAndAllocationStats stats = null;
+        long cpuTime = 0;
+        long allocation = 0;
+        long time = 0;
+        if (withMonitoringCostMetrics || governor != null) {
+            stats = CpuAndAllocationStats.get();
+            cpuTime = stats.getTotalCpuTime();
+            allocation = stats.getTotalAllocation();
+            time = System.nanoTime();
+        }
+
+        try {
+            task.recordable.record(getCollectingRecorder());
+        } catch (Throwable e) {
+            onError(task.name, e);
+        }
+
+        if (stats != null) {
+            time = Math.max(System.nanoTime() - time, 0);
+            cpuTime = Math.max(stats.getTotalCpuTime() - cpuTime, 0);
+            if (governor != null)
+                governor.addCpuTime(cpuTime);
+
+            if (withMonitoringCostMetrics) {
+                recorder.histogram(metricJvmMonitoringCollectTime, time / 1_000_000d, task.tags);
+                if (stats.cpuTimeEnabled)
+                    recorder.histogram(metricJvmMonitoringCollectCpu, cpuTime / 1_000_000d, task.tags);
+                if (stats.allocationEnabled)
+                    recorder.histogram(metricJvmMonitoringCollectAllocation, Math.max(stats.getTotalAllocation() - allocation, 0), task.tags);
             }
-        };
+        }
+        if (!task.recordable.isValid())
+            tasks.remove(task.name, task);
+    }
+
+    /**
+     * Reports a failure without rethrowing it, so a failing Recordable doesn't stop collection of the others.
+     * Exceptions are passed as is, other Throwables are wrapped into {@link CollectionError}
+     **/
+    protected void onError(String source, Throwable e) {
+        if (recorder == null)
+            e.printStackTrace();
+        else
+            recorder.onError(e instanceof Exception ? (Exception) e : new CollectionError(source, e));
+    }
 
+    public void init() {
         if (withJvmGcMetrics)
             for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
-                cache.put(gc.getName(), new GcStats(gc, this));
+                put(gc.getName(), new GcStats(gc, this), gcInterval);
+            }
+
+        if (withJvmGcHealthMetrics) {
+            gcHealthStats = new GcHealthStats(this);
+            for (Consumer<GcHealthStats> listener : gcHealthListeners) {
+                gcHealthStats.addListener(listener);
+            }
+            put("jvm.gc.health", gcHealthStats, gcInterval);
+        }
+
+        if (withJvmGcNotifications || withJvmAllocationMetrics) {
+            gcNotificationListener = new GcNotificationListener(this);
+            gcNotificationListener.setRecordPauses(withJvmGcNotifications);
+            if (withJvmAllocationMetrics) {
+                AllocationStats allocationStats = new AllocationStats(this);
+                gcNotificationListener.addConsumer(allocationStats);
+                put("jvm.allocation", allocationStats, gcInterval);
             }
+            gcNotificationListener.register();
+        }
+
+        if (withJfrMetrics && JfrStats.isSupported()) {
+            jfrStats = new JfrStats(this);
+            jfrStats.start();
+            put("jvm.jfr", jfrStats, 0);
+        }
+
+        if (withVirtualThreadMetrics && VirtualThreadStats.isSupported()) {
+            virtualThreadStats = new VirtualThreadStats(this);
+            virtualThreadStats.start();
+            put("jvm.virtual", virtualThreadStats, 0);
+        }
 
         if (withJvmBasicMemoryMetrics)
-            cache.put("jvm.memory", new Recordable() {
+            put("jvm.memory", new Recordable() {
                 @Override
                 public void record(Recorder recorder) {
                     Runtime rt = Runtime.getRuntime();
@@ -149,12 +629,12 @@ public class JvmMonitoring {
                 public boolean isValid() {
                     return true;
                 }
-            });
+            }, memoryInterval);
 
         if (withJvmBuffersMetrics) {
             List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
             for (final BufferPoolMXBean bufferPool : bufferPools) {
-                cache.put("jvm.buffer." + bufferPool.getName(), new Recordable() {
+                put("jvm.buffer." + bufferPool.getName(), new Recordable() {
 
                     Recorder.Tags tags = getTags(bufferPool);
 
@@ -169,34 +649,48 @@ public class JvmMonitoring {
                     public boolean isValid() {
                         return true;
                     }
-                });
+                }, memoryInterval);
             }
         }
 
         if (withJvmMemoryPoolMetrics)
             for (MemoryPoolMXBean memoryMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
-                cache.put(memoryMXBean.getName(), new MemoryPoolStats(memoryMXBean, this));
+                put(memoryMXBean.getName(), new MemoryPoolStats(memoryMXBean, this), memoryInterval);
             }
 
+        if (withJvmMemoryThresholds) {
+            memoryThresholdListener = new MemoryThresholdListener(this);
+            for (Consumer<MemoryThresholdListener.Event> listener : memoryThresholdListeners) {
+                memoryThresholdListener.addConsumer(listener);
+            }
+            memoryThresholdListener.register(memoryUsageThreshold, memoryCollectionUsageThreshold);
+        }
+
+        if (withJvmNativeMemoryMetrics)
+            put("jvm.nmt", new NativeMemoryStats(this), nativeMemoryInterval);
+
+        if (withJvmClassHistogram)
+            put("jvm.class.histogram", new ClassHistogramStats(this, classHistogramTopN, TimeUnit.SECONDS.toMillis(classHistogramInterval) / 2), classHistogramInterval);
+
         if (withJvmMemoryMetrics) {
             final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
-            cache.put("jvm.mem.heap", new MemoryStats(new Supplier<MemoryUsage>() {
+            put("jvm.mem.heap", new MemoryStats(new Supplier<MemoryUsage>() {
                 @Override
                 public MemoryUsage supply() {
                     return memoryMXBean.getHeapMemoryUsage();
                 }
-            }, this, Recorder.Tags.of("type", "heap")));
-            cache.put("jvm.mem.nonheap", new MemoryStats(new Supplier<MemoryUsage>() {
+            }, this, Recorder.Tags.of("type", "heap")), memoryInterval);
+            put("jvm.mem.nonheap", new MemoryStats(new Supplier<MemoryUsage>() {
                 @Override
                 public MemoryUsage supply() {
                     return memoryMXBean.getNonHeapMemoryUsage();
                 }
-            }, this, Recorder.Tags.of("type", "nonheap")));
+            }, this, Recorder.Tags.of("type", "nonheap")), memoryInterval);
         }
 
 
         if (withJvmClassLoadingMetrics)
-            cache.put("classLoading", new Recordable() {
+            put("classLoading", new Recordable() {
                 final ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
 
                 @Override
@@ -210,10 +704,10 @@ public class JvmMonitoring {
                 public boolean isValid() {
                     return true;
                 }
-            });
+            }, 0);
 
         if (withJvmCompilationMetrics)
-            cache.put("compilation", new Recordable() {
+            put("compilation", new Recordable() {
 
                 final CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
 
@@ -226,7 +720,7 @@ public class JvmMonitoring {
                 public boolean isValid() {
                     return true;
                 }
-            });
+            }, 0);
 
         if (withJvmThreadMetrics) {
             com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
@@ -236,10 +730,13 @@ public class JvmMonitoring {
                 if (profilerEnabled)
                     profiler = createProfiler();
 
-                cache.put("threading", new ThreadsStats(threadMXBean, this));
+                put("threading", new ThreadsStats(threadMXBean, this), threadsInterval);
             }
         }
 
+        if (withJvmContentionMetrics)
+            put("jvm.contention", contentionStats = new ContentionStats(ManagementFactory.getThreadMXBean(), this), threadsInterval);
+
 //        if (withCacheMetrics) {
 //            final AtomicInteger counter = new AtomicInteger(0);
 //            CacheCleaner.addListener(new CacheCleaner.OnCacheAddedListener() {
@@ -253,13 +750,28 @@ public class JvmMonitoring {
 //            }
 //        }
 
+        if (withRegistryMetrics && recorder != null)
+            put("registry", recorder.getRegistry(), 0);
+
+        if (withExecutorMetrics)
+            put("executors", executorRegistry, 0);
+
         if (withSystemMetrics) {
-            cache.put("CpuStat", new CpuStatReader().createRecordable());
-            cache.put("DiskStat", new DiskStatsReader().createRecordable());
-            cache.put("LoadStat", new LoadStatsReader().createRecordable());
-            cache.put("MemoryStat", new MemoryStatsReader().createRecordable());
-            cache.put("NetworkStat", new NetworkStatsReader().createRecordable());
+            cpuStatReader = new CpuStatReader();
+            put("CpuStat", cpuStatReader.createRecordable(), systemInterval);
+            put("DiskStat", new DiskStatsReader().createRecordable(), diskInterval);
+            put("LoadStat", new LoadStatsReader().createRecordable(), systemInterval);
+            put("MemoryStat", new MemoryStatsReader().createRecordable(), systemInterval);
+            put("NetworkStat", new NetworkStatsReader().createRecordable(), systemInterval);
+        }
+
+        if (withNativeThreadMetrics) {
+            ThreadStatReader threadStatReader = new ThreadStatReader();
+            if (threadStatReader.isSupported())
+                put("ThreadStat", threadStatReader.createRecordable(), systemInterval);
         }
+
+        start();
     }
 
     public boolean isWithJvmGcMetrics() {
@@ -270,6 +782,111 @@ public class JvmMonitoring {
         this.withJvmGcMetrics = withJvmGcMetrics;
     }
 
+    public boolean isWithJvmGcNotifications() {
+        return withJvmGcNotifications;
+    }
+
+    /**
+     * Records every collection from GC notifications: pause duration by gc/cause/action and pool usage before/after it
+     **/
+    public void setWithJvmGcNotifications(boolean withJvmGcNotifications) {
+        this.withJvmGcNotifications = withJvmGcNotifications;
+    }
+
+    public boolean isWithJvmAllocationMetrics() {
+        return withJvmAllocationMetrics;
+    }
+
+    /**
+     * Reports allocation rate of young generation and promotion rate into old generation (bytes/s), derived from GC notifications
+     **/
+    public void setWithJvmAllocationMetrics(boolean withJvmAllocationMetrics) {
+        this.withJvmAllocationMetrics = withJvmAllocationMetrics;
+    }
+
+    public boolean isWithJvmGcHealthMetrics() {
+        return withJvmGcHealthMetrics;
+    }
+
+    /**
+     * Reports GC overhead over 1m/5m windows and the trend of post-GC old generation occupancy with projected time to OOM
+     **/
+    public void setWithJvmGcHealthMetrics(boolean withJvmGcHealthMetrics) {
+        this.withJvmGcHealthMetrics = withJvmGcHealthMetrics;
+    }
+
+    /**
+     * Listener is called after every evaluation of {@link GcHealthStats}, requires {@link #withJvmGcHealthMetrics}
+     **/
+    public JvmMonitoring addGcHealthListener(Consumer<GcHealthStats> listener) {
+        gcHealthListeners.add(listener);
+        if (gcHealthStats != null)
+            gcHealthStats.addListener(listener);
+        return this;
+    }
+
+    public GcHealthStats getGcHealthStats() {
+        return gcHealthStats;
+    }
+
+    public boolean isWithJfrMetrics() {
+        return withJfrMetrics;
+    }
+
+    /**
+     * Streams JFR events (gc, safepoints, monitor enter, thread park, allocation samples, cpu load) and reports them aggregated per interval.
+     * Requires JDK 14+, ignored on older versions, see {@link JfrStats}
+     **/
+    public void setWithJfrMetrics(boolean withJfrMetrics) {
+        this.withJfrMetrics = withJfrMetrics;
+    }
+
+    public long getJfrThreshold() {
+        return jfrThreshold;
+    }
+
+    /**
+     * Minimal duration in millis of monitor enter and thread park events to be recorded
+     **/
+    public void setJfrThreshold(long jfrThreshold) {
+        this.jfrThreshold = jfrThreshold;
+    }
+
+    public JfrStats getJfrStats() {
+        return jfrStats;
+    }
+
+    public boolean isWithVirtualThreadMetrics() {
+        return withVirtualThreadMetrics;
+    }
+
+    /**
+     * Reports state of the virtual thread scheduler and carrier pinning.
+     * Requires JDK 21+, ignored on older versions, see {@link VirtualThreadStats}
+     **/
+    public void setWithVirtualThreadMetrics(boolean withVirtualThreadMetrics) {
+        this.withVirtualThreadMetrics = withVirtualThreadMetrics;
+    }
+
+    public long getVirtualThreadPinnedThreshold() {
+        return virtualThreadPinnedThreshold;
+    }
+
+    /**
+     * Minimal duration in millis of a virtual thread being pinned to its carrier to be recorded
+     **/
+    public void setVirtualThreadPinnedThreshold(long virtualThreadPinnedThreshold) {
+        this.virtualThreadPinnedThreshold = virtualThreadPinnedThreshold;
+    }
+
+    public VirtualThreadStats getVirtualThreadStats() {
+        return virtualThreadStats;
+    }
+
+    public GcNotificationListener getGcNotificationListener() {
+        return gcNotificationListener;
+    }
+
     public boolean isWithJvmBasicMemoryMetrics() {
         return withJvmBasicMemoryMetrics;
     }
@@ -294,6 +911,83 @@ public class JvmMonitoring {
         this.withJvmMemoryPoolMetrics = withJvmMemoryPoolMetrics;
     }
 
+    public boolean isWithJvmMemoryThresholds() {
+        return withJvmMemoryThresholds;
+    }
+
+    /**
+     * Sets usage and collection usage thresholds on memory pools, crossings are counted immediately
+     * and passed to listeners added with {@link #addMemoryThresholdListener}
+     **/
+    public void setWithJvmMemoryThresholds(boolean withJvmMemoryThresholds) {
+        this.withJvmMemoryThresholds = withJvmMemoryThresholds;
+    }
+
+    public double getMemoryUsageThreshold() {
+        return memoryUsageThreshold;
+    }
+
+    /**
+     * @param memoryUsageThreshold fraction of max of each pool, 0 disables usage threshold
+     **/
+    public void setMemoryUsageThreshold(double memoryUsageThreshold) {
+        this.memoryUsageThreshold = memoryUsageThreshold;
+    }
+
+    public double getMemoryCollectionUsageThreshold() {
+        return memoryCollectionUsageThreshold;
+    }
+
+    /**
+     * @param memoryCollectionUsageThreshold fraction of max of each pool checked after collections, 0 disables collection usage threshold
+     **/
+    public void setMemoryCollectionUsageThreshold(double memoryCollectionUsageThreshold) {
+        this.memoryCollectionUsageThreshold = memoryCollectionUsageThreshold;
+    }
+
+    public JvmMonitoring addMemoryThresholdListener(Consumer<MemoryThresholdListener.Event> listener) {
+        memoryThresholdListeners.add(listener);
+        if (memoryThresholdListener != null)
+            memoryThresholdListener.addConsumer(listener);
+        return this;
+    }
+
+    public MemoryThresholdListener getMemoryThresholdListener() {
+        return memoryThresholdListener;
+    }
+
+    public boolean isWithJvmNativeMemoryMetrics() {
+        return withJvmNativeMemoryMetrics;
+    }
+
+    /**
+     * Reports Native Memory Tracking summary per category every {@link #nativeMemoryInterval} seconds,
+     * requires -XX:NativeMemoryTracking=summary
+     **/
+    public void setWithJvmNativeMemoryMetrics(boolean withJvmNativeMemoryMetrics) {
+        this.withJvmNativeMemoryMetrics = withJvmNativeMemoryMetrics;
+    }
+
+    public boolean isWithJvmClassHistogram() {
+        return withJvmClassHistogram;
+    }
+
+    /**
+     * Samples heap class histogram every {@link #classHistogramInterval} seconds and reports top classes by size and by growth,
+     * see {@link ClassHistogramStats}. Each sample walks the whole heap in a safepoint
+     **/
+    public void setWithJvmClassHistogram(boolean withJvmClassHistogram) {
+        this.withJvmClassHistogram = withJvmClassHistogram;
+    }
+
+    public int getClassHistogramTopN() {
+        return classHistogramTopN;
+    }
+
+    public void setClassHistogramTopN(int classHistogramTopN) {
+        this.classHistogramTopN = classHistogramTopN;
+    }
+
     public boolean isWithJvmMemoryMetrics() {
         return withJvmMemoryMetrics;
     }
@@ -326,6 +1020,46 @@ public class JvmMonitoring {
         this.withJvmThreadMetrics = withJvmThreadMetrics;
     }
 
+    public boolean isAggregateThreadMetrics() {
+        return aggregateThreadMetrics;
+    }
+
+    /**
+     * Reports thread metrics summed per thread group as jvm.thread.group.* and individually only for {@link #threadsTopN} threads
+     * with the highest cpu time and allocation, so the number of series doesn't grow with the number of threads
+     **/
+    public void setAggregateThreadMetrics(boolean aggregateThreadMetrics) {
+        this.aggregateThreadMetrics = aggregateThreadMetrics;
+    }
+
+    public int getThreadsTopN() {
+        return threadsTopN;
+    }
+
+    public void setThreadsTopN(int threadsTopN) {
+        this.threadsTopN = threadsTopN;
+    }
+
+    public boolean isWithJvmContentionMetrics() {
+        return withJvmContentionMetrics;
+    }
+
+    /**
+     * Enables thread contention monitoring and reports blocked/waited count and time per thread group
+     * plus {@link #contentionTopN} threads that were blocked the longest during the interval
+     **/
+    public void setWithJvmContentionMetrics(boolean withJvmContentionMetrics) {
+        this.withJvmContentionMetrics = withJvmContentionMetrics;
+    }
+
+    public int getContentionTopN() {
+        return contentionTopN;
+    }
+
+    public void setContentionTopN(int contentionTopN) {
+        this.contentionTopN = contentionTopN;
+    }
+
     public boolean isWithCacheMetrics() {
         return withCacheMetrics;
     }
@@ -342,6 +1076,102 @@ public class JvmMonitoring {
         this.withSystemMetrics = withSystemMetrics;
     }
 
+    public boolean isWithNativeThreadMetrics() {
+        return withNativeThreadMetrics;
+    }
+
+    /**
+     * Enables cpu usage of native threads grouped by name, including GC and JIT threads, read from /proc/self/task
+     **/
+    public void setWithNativeThreadMetrics(boolean withNativeThreadMetrics) {
+        this.withNativeThreadMetrics = withNativeThreadMetrics;
+    }
+
+    public boolean isWithRegistryMetrics() {
+        return withRegistryMetrics;
+    }
+
+    public void setWithRegistryMetrics(boolean withRegistryMetrics) {
+        this.withRegistryMetrics = withRegistryMetrics;
+    }
+
+    public boolean isWithExecutorMetrics() {
+        return withExecutorMetrics;
+    }
+
+    public void setWithExecutorMetrics(boolean withExecutorMetrics) {
+        this.withExecutorMetrics = withExecutorMetrics;
+    }
+
+    /**
+     * Executors registered or instrumented here are reported if {@link #withExecutorMetrics} is enabled
+     **/
+    public ExecutorRegistry getExecutorRegistry() {
+        return executorRegistry;
+    }
+
+    public boolean isWithMonitoringCostMetrics() {
+        return withMonitoringCostMetrics;
+    }
+
+    /**
+     * Reports wall time, cpu time and allocation of collecting each Recordable, disabled by default
+     **/
+    public void setWithMonitoringCostMetrics(boolean withMonitoringCostMetrics) {
+        this.withMonitoringCostMetrics = withMonitoringCostMetrics;
+    }
+
+    public boolean isWithSnapshot() {
+        return withSnapshot;
+    }
+
+    public void setWithSnapshot(boolean withSnapshot) {
+        this.withSnapshot = withSnapshot;
+        collectingRecorder = null;
+    }
+
+    public int getSnapshotExpiration() {
+        return snapshotExpiration;
+    }
+
+    /**
+     * Series not updated for given number of seconds are removed from the snapshot, checked once a minute. 0 keeps them forever
+     **/
+    public void setSnapshotExpiration(int snapshotExpiration) {
+        this.snapshotExpiration = snapshotExpiration;
+    }
+
+    public boolean isWithGaugeSuppression() {
+        return withGaugeSuppression;
+    }
+
+    /**
+     * Sends a gauge only if it changed by more than {@link #gaugeSuppressionEpsilon}
+     * or if it wasn't sent for {@link #gaugeHeartbeat} seconds
+     **/
+    public void setWithGaugeSuppression(boolean withGaugeSuppression) {
+        this.withGaugeSuppression = withGaugeSuppression;
+        collectingRecorder = null;
+    }
+
+    public double getGaugeSuppressionEpsilon() {
+        return gaugeSuppressionEpsilon;
+    }
+
+    public void setGaugeSuppressionEpsilon(double gaugeSuppressionEpsilon) {
+        this.gaugeSuppressionEpsilon = gaugeSuppressionEpsilon;
+        collectingRecorder = null;
+    }
+
+    public int getGaugeHeartbeat() {
+        return gaugeHeartbeat;
+    }
+
+    public void setGaugeHeartbeat(int gaugeHeartbeat) {
+        this.gaugeHeartbeat = gaugeHeartbeat;
+        collectingRecorder = null;
+    }
+
 //    protected CacheStats createCacheStats(Cache cache) {
 //        return new CacheStats(cache.getStatistics(), this);
 //    }
@@ -366,6 +1196,17 @@ public class JvmMonitoring {
         return actualThreadGroupName;
     }
 
+    /**
+     * Cached equivalent of resolveThreadGroupName(threadName, threadGroup(threadId).getName()), see {@link ThreadRegistry}
+     **/
+    public String getThreadGroupName(long threadId, String threadName) {
+        return threadRegistry.getGroup(threadId, threadName);
+    }
+
+    public ThreadRegistry getThreadRegistry() {
+        return threadRegistry;
+    }
+
     public Profiler getProfiler() {
         if (profilerEnabled && profiler == null)
             profiler = createProfiler();
@@ -388,6 +1229,10 @@ public class JvmMonitoring {
         return group;
     }
 
+    protected Recorder.Tags getRecordableTags(String name) {
+        return Recorder.Tags.of("recordable", name);
+    }
+
     protected Recorder.Tags getTags(CacheStatistics statistics) {
         return Recorder.Tags.of("cache", statistics.getCacheName());
     }
@@ -416,19 +1261,177 @@ public class JvmMonitoring {
         return interval;
     }
 
+    /**
+     * Intervals are divisors of the tick counter, so they have to be positive. 0 falls back to {@link #getInterval()} where it is allowed
+     **/
+    protected static int checkInterval(String name, int value, int min) {
+        if (value < min)
+            throw new IllegalArgumentException(name + " must be >= " + min + ", got " + value);
+        return value;
+    }
+
     public void setInterval(int interval) {
-        this.interval = interval;
+        this.interval = checkInterval("interval", interval, 1);
     }
 
-    public String getMetricJvmMemoryFree() {
-        return metricJvmMemoryFree;
+    public int getGcInterval() {
+        return gcInterval;
     }
 
-    public void setMetricJvmMemoryFree(String metricJvmMemoryFree) {
-        this.metricJvmMemoryFree = metricJvmMemoryFree;
+    public void setGcInterval(int gcInterval) {
+        this.gcInterval = checkInterval("gcInterval", gcInterval, 0);
     }
 
-    public String getMetricJvmMemoryTotal() {
+    public int getMemoryInterval() {
+        return memoryInterval;
+    }
+
+    public void setMemoryInterval(int memoryInterval) {
+        this.memoryInterval = checkInterval("memoryInterval", memoryInterval, 0);
+    }
+
+    public int getThreadsInterval() {
+        return threadsInterval;
+    }
+
+    public void setThreadsInterval(int threadsInterval) {
+        this.threadsInterval = checkInterval("threadsInterval", threadsInterval, 0);
+    }
+
+    public int getSystemInterval() {
+        return systemInterval;
+    }
+
+    public void setSystemInterval(int systemInterval) {
+        this.systemInterval = checkInterval("systemInterval", systemInterval, 0);
+    }
+
+    public int getDiskInterval() {
+        return diskInterval;
+    }
+
+    public void setDiskInterval(int diskInterval) {
+        this.diskInterval = checkInterval("diskInterval", diskInterval, 0);
+    }
+
+    public int getNativeMemoryInterval() {
+        return nativeMemoryInterval;
+    }
+
+    public void setNativeMemoryInterval(int nativeMemoryInterval) {
+        this.nativeMemoryInterval = checkInterval("nativeMemoryInterval", nativeMemoryInterval, 0);
+    }
+
+    public int getClassHistogramInterval() {
+        return classHistogramInterval;
+    }
+
+    public void setClassHistogramInterval(int classHistogramInterval) {
+        this.classHistogramInterval = checkInterval("classHistogramInterval", classHistogramInterval, 0);
+    }
+
+    public int getCollectParallelism() {
+        return collectParallelism;
+    }
+
+    /**
+     * Number of threads to collect Recordables in parallel, 0 collects them serially on the scheduler thread. Applied on {@link #start()}
+     **/
+    public void setCollectParallelism(int collectParallelism) {
+        this.collectParallelism = collectParallelism;
+    }
+
+    public long getCollectTimeout() {
+        return collectTimeout;
+    }
+
+    /**
+     * Deadline in milliseconds for a single Recordable in parallel mode
+     **/
+    public void setCollectTimeout(long collectTimeout) {
+        this.collectTimeout = collectTimeout;
+    }
+
+    public String getMetricJvmMonitoringCollectTimeout() {
+        return metricJvmMonitoringCollectTimeout;
+    }
+
+    public void setMetricJvmMonitoringCollectTimeout(String metricJvmMonitoringCollectTimeout) {
+        this.metricJvmMonitoringCollectTimeout = metricJvmMonitoringCollectTimeout;
+    }
+
+    public String getMetricJvmMonitoringCollectSkipped() {
+        return metricJvmMonitoringCollectSkipped;
+    }
+
+    public void setMetricJvmMonitoringCollectSkipped(String metricJvmMonitoringCollectSkipped) {
+        this.metricJvmMonitoringCollectSkipped = metricJvmMonitoringCollectSkipped;
+    }
+
+    public String getMetricJvmMonitoringCollectTime() {
+        return metricJvmMonitoringCollectTime;
+    }
+
+    public void setMetricJvmMonitoringCollectTime(String metricJvmMonitoringCollectTime) {
+        this.metricJvmMonitoringCollectTime = metricJvmMonitoringCollectTime;
+    }
+
+    public String getMetricJvmMonitoringCollectCpu() {
+        return metricJvmMonitoringCollectCpu;
+    }
+
+    public void setMetricJvmMonitoringCollectCpu(String metricJvmMonitoringCollectCpu) {
+        this.metricJvmMonitoringCollectCpu = metricJvmMonitoringCollectCpu;
+    }
+
+    public String getMetricJvmMonitoringCollectAllocation() {
+        return metricJvmMonitoringCollectAllocation;
+    }
+
+    public void setMetricJvmMonitoringCollectAllocation(String metricJvmMonitoringCollectAllocation) {
+        this.metricJvmMonitoringCollectAllocation = metricJvmMonitoringCollectAllocation;
+    }
+
+    public int getGovernorWindow() {
+        return governorWindow;
+    }
+
+    /**
+     * How often in seconds {@link OverheadGovernor} evaluates monitoring overhead
+     **/
+    public void setGovernorWindow(int governorWindow) {
+        this.governorWindow = checkInterval("governorWindow", governorWindow, 1);
+    }
+
+    public boolean isPerThreadMetricsEnabled() {
+        return perThreadMetricsEnabled;
+    }
+
+    public String getMetricJvmMonitoringOverhead() {
+        return metricJvmMonitoringOverhead;
+    }
+
+    public void setMetricJvmMonitoringOverhead(String metricJvmMonitoringOverhead) {
+        this.metricJvmMonitoringOverhead = metricJvmMonitoringOverhead;
+    }
+
+    public String getMetricJvmMonitoringDegradation() {
+        return metricJvmMonitoringDegradation;
+    }
+
+    public void setMetricJvmMonitoringDegradation(String metricJvmMonitoringDegradation) {
+        this.metricJvmMonitoringDegradation = metricJvmMonitoringDegradation;
+    }
+
+    public String getMetricJvmMemoryFree() {
+        return metricJvmMemoryFree;
+    }
+
+    public void setMetricJvmMemoryFree(String metricJvmMemoryFree) {
+        this.metricJvmMemoryFree = metricJvmMemoryFree;
+    }
+
+    public String getMetricJvmMemoryTotal() {
         return metricJvmMemoryTotal;
     }
 
@@ -484,6 +1487,190 @@ public class JvmMonitoring {
         this.metricJvmGcTime = metricJvmGcTime;
     }
 
+    public String getMetricJvmGcPause() {
+        return metricJvmGcPause;
+    }
+
+    public void setMetricJvmGcPause(String metricJvmGcPause) {
+        this.metricJvmGcPause = metricJvmGcPause;
+    }
+
+    public String getMetricJvmGcPoolBefore() {
+        return metricJvmGcPoolBefore;
+    }
+
+    public void setMetricJvmGcPoolBefore(String metricJvmGcPoolBefore) {
+        this.metricJvmGcPoolBefore = metricJvmGcPoolBefore;
+    }
+
+    public String getMetricJvmGcPoolAfter() {
+        return metricJvmGcPoolAfter;
+    }
+
+    public void setMetricJvmGcPoolAfter(String metricJvmGcPoolAfter) {
+        this.metricJvmGcPoolAfter = metricJvmGcPoolAfter;
+    }
+
+    public String getMetricJvmGcAllocationRate() {
+        return metricJvmGcAllocationRate;
+    }
+
+    public void setMetricJvmGcAllocationRate(String metricJvmGcAllocationRate) {
+        this.metricJvmGcAllocationRate = metricJvmGcAllocationRate;
+    }
+
+    public String getMetricJvmGcPromotionRate() {
+        return metricJvmGcPromotionRate;
+    }
+
+    public void setMetricJvmGcPromotionRate(String metricJvmGcPromotionRate) {
+        this.metricJvmGcPromotionRate = metricJvmGcPromotionRate;
+    }
+
+    public String getMetricJvmGcOverhead1m() {
+        return metricJvmGcOverhead1m;
+    }
+
+    public void setMetricJvmGcOverhead1m(String metricJvmGcOverhead1m) {
+        this.metricJvmGcOverhead1m = metricJvmGcOverhead1m;
+    }
+
+    public String getMetricJvmGcOverhead5m() {
+        return metricJvmGcOverhead5m;
+    }
+
+    public void setMetricJvmGcOverhead5m(String metricJvmGcOverhead5m) {
+        this.metricJvmGcOverhead5m = metricJvmGcOverhead5m;
+    }
+
+    public String getMetricJvmGcLiveSetSlope() {
+        return metricJvmGcLiveSetSlope;
+    }
+
+    public void setMetricJvmGcLiveSetSlope(String metricJvmGcLiveSetSlope) {
+        this.metricJvmGcLiveSetSlope = metricJvmGcLiveSetSlope;
+    }
+
+    public String getMetricJvmGcTimeToOom() {
+        return metricJvmGcTimeToOom;
+    }
+
+    public void setMetricJvmGcTimeToOom(String metricJvmGcTimeToOom) {
+        this.metricJvmGcTimeToOom = metricJvmGcTimeToOom;
+    }
+
+    public String getMetricJvmJfrGcPause() {
+        return metricJvmJfrGcPause;
+    }
+
+    public void setMetricJvmJfrGcPause(String metricJvmJfrGcPause) {
+        this.metricJvmJfrGcPause = metricJvmJfrGcPause;
+    }
+
+    public String getMetricJvmJfrSafepointSync() {
+        return metricJvmJfrSafepointSync;
+    }
+
+    public void setMetricJvmJfrSafepointSync(String metricJvmJfrSafepointSync) {
+        this.metricJvmJfrSafepointSync = metricJvmJfrSafepointSync;
+    }
+
+    public String getMetricJvmJfrSafepointPause() {
+        return metricJvmJfrSafepointPause;
+    }
+
+    public void setMetricJvmJfrSafepointPause(String metricJvmJfrSafepointPause) {
+        this.metricJvmJfrSafepointPause = metricJvmJfrSafepointPause;
+    }
+
+    public String getMetricJvmJfrMonitorEnter() {
+        return metricJvmJfrMonitorEnter;
+    }
+
+    public void setMetricJvmJfrMonitorEnter(String metricJvmJfrMonitorEnter) {
+        this.metricJvmJfrMonitorEnter = metricJvmJfrMonitorEnter;
+    }
+
+    public String getMetricJvmJfrThreadPark() {
+        return metricJvmJfrThreadPark;
+    }
+
+    public void setMetricJvmJfrThreadPark(String metricJvmJfrThreadPark) {
+        this.metricJvmJfrThreadPark = metricJvmJfrThreadPark;
+    }
+
+    public String getMetricJvmJfrAllocation() {
+        return metricJvmJfrAllocation;
+    }
+
+    public void setMetricJvmJfrAllocation(String metricJvmJfrAllocation) {
+        this.metricJvmJfrAllocation = metricJvmJfrAllocation;
+    }
+
+    public String getMetricJvmJfrCpuUser() {
+        return metricJvmJfrCpuUser;
+    }
+
+    public void setMetricJvmJfrCpuUser(String metricJvmJfrCpuUser) {
+        this.metricJvmJfrCpuUser = metricJvmJfrCpuUser;
+    }
+
+    public String getMetricJvmJfrCpuSystem() {
+        return metricJvmJfrCpuSystem;
+    }
+
+    public void setMetricJvmJfrCpuSystem(String metricJvmJfrCpuSystem) {
+        this.metricJvmJfrCpuSystem = metricJvmJfrCpuSystem;
+    }
+
+    public String getMetricJvmJfrCpuMachine() {
+        return metricJvmJfrCpuMachine;
+    }
+
+    public void setMetricJvmJfrCpuMachine(String metricJvmJfrCpuMachine) {
+        this.metricJvmJfrCpuMachine = metricJvmJfrCpuMachine;
+    }
+
+    public String getMetricJvmVirtualParallelism() {
+        return metricJvmVirtualParallelism;
+    }
+
+    public void setMetricJvmVirtualParallelism(String metricJvmVirtualParallelism) {
+        this.metricJvmVirtualParallelism = metricJvmVirtualParallelism;
+    }
+
+    public String getMetricJvmVirtualPoolSize() {
+        return metricJvmVirtualPoolSize;
+    }
+
+    public void setMetricJvmVirtualPoolSize(String metricJvmVirtualPoolSize) {
+        this.metricJvmVirtualPoolSize = metricJvmVirtualPoolSize;
+    }
+
+    public String getMetricJvmVirtualQueued() {
+        return metricJvmVirtualQueued;
+    }
+
+    public void setMetricJvmVirtualQueued(String metricJvmVirtualQueued) {
+        this.metricJvmVirtualQueued = metricJvmVirtualQueued;
+    }
+
+    public String getMetricJvmVirtualMounted() {
+        return metricJvmVirtualMounted;
+    }
+
+    public void setMetricJvmVirtualMounted(String metricJvmVirtualMounted) {
+        this.metricJvmVirtualMounted = metricJvmVirtualMounted;
+    }
+
+    public String getMetricJvmVirtualPinned() {
+        return metricJvmVirtualPinned;
+    }
+
+    public void setMetricJvmVirtualPinned(String metricJvmVirtualPinned) {
+        this.metricJvmVirtualPinned = metricJvmVirtualPinned;
+    }
+
     public String getMetricJvmClassesLoaded() {
         return metricJvmClassesLoaded;
     }
@@ -572,6 +1759,86 @@ public class JvmMonitoring {
         this.metricJvmThreadCpuUserNanos = metricJvmThreadCpuUserNanos;
     }
 
+    public String getMetricJvmThreadGroupAllocation() {
+        return metricJvmThreadGroupAllocation;
+    }
+
+    public void setMetricJvmThreadGroupAllocation(String metricJvmThreadGroupAllocation) {
+        this.metricJvmThreadGroupAllocation = metricJvmThreadGroupAllocation;
+    }
+
+    public String getMetricJvmThreadGroupCpu() {
+        return metricJvmThreadGroupCpu;
+    }
+
+    public void setMetricJvmThreadGroupCpu(String metricJvmThreadGroupCpu) {
+        this.metricJvmThreadGroupCpu = metricJvmThreadGroupCpu;
+    }
+
+    public String getMetricJvmThreadGroupCpuUser() {
+        return metricJvmThreadGroupCpuUser;
+    }
+
+    public void setMetricJvmThreadGroupCpuUser(String metricJvmThreadGroupCpuUser) {
+        this.metricJvmThreadGroupCpuUser = metricJvmThreadGroupCpuUser;
+    }
+
+    public String getMetricJvmThreadGroupCpuNanos() {
+        return metricJvmThreadGroupCpuNanos;
+    }
+
+    public void setMetricJvmThreadGroupCpuNanos(String metricJvmThreadGroupCpuNanos) {
+        this.metricJvmThreadGroupCpuNanos = metricJvmThreadGroupCpuNanos;
+    }
+
+    public String getMetricJvmThreadGroupCpuUserNanos() {
+        return metricJvmThreadGroupCpuUserNanos;
+    }
+
+    public void setMetricJvmThreadGroupCpuUserNanos(String metricJvmThreadGroupCpuUserNanos) {
+        this.metricJvmThreadGroupCpuUserNanos = metricJvmThreadGroupCpuUserNanos;
+    }
+
+    public String getMetricJvmThreadBlockedCount() {
+        return metricJvmThreadBlockedCount;
+    }
+
+    public void setMetricJvmThreadBlockedCount(String metricJvmThreadBlockedCount) {
+        this.metricJvmThreadBlockedCount = metricJvmThreadBlockedCount;
+    }
+
+    public String getMetricJvmThreadBlockedTime() {
+        return metricJvmThreadBlockedTime;
+    }
+
+    public void setMetricJvmThreadBlockedTime(String metricJvmThreadBlockedTime) {
+        this.metricJvmThreadBlockedTime = metricJvmThreadBlockedTime;
+    }
+
+    public String getMetricJvmThreadWaitedCount() {
+        return metricJvmThreadWaitedCount;
+    }
+
+    public void setMetricJvmThreadWaitedCount(String metricJvmThreadWaitedCount) {
+        this.metricJvmThreadWaitedCount = metricJvmThreadWaitedCount;
+    }
+
+    public String getMetricJvmThreadWaitedTime() {
+        return metricJvmThreadWaitedTime;
+    }
+
+    public void setMetricJvmThreadWaitedTime(String metricJvmThreadWaitedTime) {
+        this.metricJvmThreadWaitedTime = metricJvmThreadWaitedTime;
+    }
+
+    public String getMetricJvmThreadBlockedTop() {
+        return metricJvmThreadBlockedTop;
+    }
+
+    public void setMetricJvmThreadBlockedTop(String metricJvmThreadBlockedTop) {
+        this.metricJvmThreadBlockedTop = metricJvmThreadBlockedTop;
+    }
+
     public String getMetricJvmMemoryPoolCommitted() {
         return metricJvmMemoryPoolCommitted;
     }
@@ -604,6 +1871,86 @@ public class JvmMonitoring {
         this.metricJvmMemoryPoolUsed = metricJvmMemoryPoolUsed;
     }
 
+    public String getMetricJvmMemoryPoolLive() {
+        return metricJvmMemoryPoolLive;
+    }
+
+    public void setMetricJvmMemoryPoolLive(String metricJvmMemoryPoolLive) {
+        this.metricJvmMemoryPoolLive = metricJvmMemoryPoolLive;
+    }
+
+    public String getMetricJvmMemoryPoolThresholdExceeded() {
+        return metricJvmMemoryPoolThresholdExceeded;
+    }
+
+    public void setMetricJvmMemoryPoolThresholdExceeded(String metricJvmMemoryPoolThresholdExceeded) {
+        this.metricJvmMemoryPoolThresholdExceeded = metricJvmMemoryPoolThresholdExceeded;
+    }
+
+    public String getMetricJvmNativeMemoryReserved() {
+        return metricJvmNativeMemoryReserved;
+    }
+
+    public void setMetricJvmNativeMemoryReserved(String metricJvmNativeMemoryReserved) {
+        this.metricJvmNativeMemoryReserved = metricJvmNativeMemoryReserved;
+    }
+
+    public String getMetricJvmNativeMemoryCommitted() {
+        return metricJvmNativeMemoryCommitted;
+    }
+
+    public void setMetricJvmNativeMemoryCommitted(String metricJvmNativeMemoryCommitted) {
+        this.metricJvmNativeMemoryCommitted = metricJvmNativeMemoryCommitted;
+    }
+
+    public String getMetricJvmNativeMemoryReservedDelta() {
+        return metricJvmNativeMemoryReservedDelta;
+    }
+
+    public void setMetricJvmNativeMemoryReservedDelta(String metricJvmNativeMemoryReservedDelta) {
+        this.metricJvmNativeMemoryReservedDelta = metricJvmNativeMemoryReservedDelta;
+    }
+
+    public String getMetricJvmNativeMemoryCommittedDelta() {
+        return metricJvmNativeMemoryCommittedDelta;
+    }
+
+    public void setMetricJvmNativeMemoryCommittedDelta(String metricJvmNativeMemoryCommittedDelta) {
+        this.metricJvmNativeMemoryCommittedDelta = metricJvmNativeMemoryCommittedDelta;
+    }
+
+    public String getMetricJvmClassHistogramInstances() {
+        return metricJvmClassHistogramInstances;
+    }
+
+    public void setMetricJvmClassHistogramInstances(String metricJvmClassHistogramInstances) {
+        this.metricJvmClassHistogramInstances = metricJvmClassHistogramInstances;
+    }
+
+    public String getMetricJvmClassHistogramBytes() {
+        return metricJvmClassHistogramBytes;
+    }
+
+    public void setMetricJvmClassHistogramBytes(String metricJvmClassHistogramBytes) {
+        this.metricJvmClassHistogramBytes = metricJvmClassHistogramBytes;
+    }
+
+    public String getMetricJvmClassHistogramGrowthInstances() {
+        return metricJvmClassHistogramGrowthInstances;
+    }
+
+    public void setMetricJvmClassHistogramGrowthInstances(String metricJvmClassHistogramGrowthInstances) {
+        this.metricJvmClassHistogramGrowthInstances = metricJvmClassHistogramGrowthInstances;
+    }
+
+    public String getMetricJvmClassHistogramGrowthBytes() {
+        return metricJvmClassHistogramGrowthBytes;
+    }
+
+    public void setMetricJvmClassHistogramGrowthBytes(String metricJvmClassHistogramGrowthBytes) {
+        this.metricJvmClassHistogramGrowthBytes = metricJvmClassHistogramGrowthBytes;
+    }
+
     public String getMetricJvmBuffersCount() {
         return metricJvmBuffersCount;
     }
@@ -675,4 +2022,68 @@ public class JvmMonitoring {
     public void setMetricCacheCountTotal(String metricCacheCountTotal) {
         this.metricCacheCountTotal = metricCacheCountTotal;
     }
+
+    public String getMetricExecutorQueueSize() {
+        return metricExecutorQueueSize;
+    }
+
+    public void setMetricExecutorQueueSize(String metricExecutorQueueSize) {
+        this.metricExecutorQueueSize = metricExecutorQueueSize;
+    }
+
+    public String getMetricExecutorScheduled() {
+        return metricExecutorScheduled;
+    }
+
+    public void setMetricExecutorScheduled(String metricExecutorScheduled) {
+        this.metricExecutorScheduled = metricExecutorScheduled;
+    }
+
+    public String getMetricExecutorActive() {
+        return metricExecutorActive;
+    }
+
+    public void setMetricExecutorActive(String metricExecutorActive) {
+        this.metricExecutorActive = metricExecutorActive;
+    }
+
+    public String getMetricExecutorPoolSize() {
+        return metricExecutorPoolSize;
+    }
+
+    public void setMetricExecutorPoolSize(String metricExecutorPoolSize) {
+        this.metricExecutorPoolSize = metricExecutorPoolSize;
+    }
+
+    public String getMetricExecutorCompleted() {
+        return metricExecutorCompleted;
+    }
+
+    public void setMetricExecutorCompleted(String metricExecutorCompleted) {
+        this.metricExecutorCompleted = metricExecutorCompleted;
+    }
+
+    public String getMetricExecutorRejected() {
+        return metricExecutorRejected;
+    }
+
+    public void setMetricExecutorRejected(String metricExecutorRejected) {
+        this.metricExecutorRejected = metricExecutorRejected;
+    }
+
+    public String getMetricExecutorQueueWait() {
+        return metricExecutorQueueWait;
+    }
+
+    public void setMetricExecutorQueueWait(String metricExecutorQueueWait) {
+        this.metricExecutorQueueWait = metricExecutorQueueWait;
+    }
+
+    public String getMetricExecutorExecution() {
+        return metricExecutorExecution;
+    }
+
+    public void setMetricExecutorExecution(String metricExecutorExecution) {
+        this.metricExecutorExecution = metricExecutorExecution;
+    }
 }
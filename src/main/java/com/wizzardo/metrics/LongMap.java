@@ -0,0 +1,153 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Filter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map with primitive long keys, lookups don't box or allocate.
+ * Not thread-safe.
+ */
+public class LongMap<V> {
+
+    protected long[] keys;
+    protected Object[] values;
+    protected boolean[] used;
+    protected int size;
+
+    public LongMap() {
+        this(16);
+    }
+
+    public LongMap(int capacity) {
+        capacity = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+
+    protected static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    protected int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return i == -1 ? null : (V) values[i];
+    }
+
+    public boolean contains(long key) {
+        return indexOf(key) != -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                V prev = (V) values[i];
+                values[i] = value;
+                return prev;
+            }
+            i = (i + 1) & mask;
+        }
+
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 4 > keys.length * 3)
+            rehash(keys.length * 2, null);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i == -1)
+            return null;
+
+        V prev = (V) values[i];
+        int mask = keys.length - 1;
+        int hole = i;
+        used[hole] = false;
+        values[hole] = null;
+        size--;
+
+        // shift following entries of the same cluster back into the hole
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j])
+                return prev;
+
+            int home = hash(keys[j]) & mask;
+            if (hole <= j ? hole < home && home <= j : hole < home || home <= j)
+                continue;
+
+            keys[hole] = keys[j];
+            values[hole] = values[j];
+            used[hole] = true;
+            used[j] = false;
+            values[j] = null;
+            hole = j;
+        }
+    }
+
+    /**
+     * Removes all entries not allowed by the filter in a single pass
+     **/
+    public void retain(Filter<V> filter) {
+        rehash(keys.length, filter);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void rehash(int capacity, Filter<V> filter) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        boolean[] used = this.used;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.used = new boolean[capacity];
+        size = 0;
+
+        int mask = capacity - 1;
+        for (int j = 0; j < keys.length; j++) {
+            if (!used[j] || filter != null && !filter.allow((V) values[j]))
+                continue;
+
+            int i = hash(keys[j]) & mask;
+            while (this.used[i])
+                i = (i + 1) & mask;
+
+            this.used[i] = true;
+            this.keys[i] = keys[j];
+            this.values[i] = values[j];
+            size++;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
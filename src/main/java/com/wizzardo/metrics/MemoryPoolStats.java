@@ -28,6 +28,10 @@ public class MemoryPoolStats implements JvmMonitoring.Recordable {
         recorder.gauge(jvmMonitoring.metricJvmMemoryPoolInit, usage.getInit(), tags);
         recorder.gauge(jvmMonitoring.metricJvmMemoryPoolMax, usage.getMax(), tags);
         recorder.gauge(jvmMonitoring.metricJvmMemoryPoolUsed, usage.getUsed(), tags);
+
+        MemoryUsage collectionUsage = memoryPool.getCollectionUsage();
+        if (collectionUsage != null)
+            recorder.gauge(jvmMonitoring.metricJvmMemoryPoolLive, collectionUsage.getUsed(), tags);
     }
 
     @Override
@@ -0,0 +1,187 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Consumer;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sets usage and collection usage thresholds of memory pools as fractions of their max
+ * and reports crossing of them as soon as the JVM detects it, without polling.
+ * Every crossing is counted and passed to registered consumers.
+ * Thresholds that were set before are restored on {@link #unregister()}.
+ */
+public class MemoryThresholdListener implements NotificationListener {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final List<PoolThresholds> pools = new ArrayList<>();
+    protected final Map<String, Recorder.Tags> tags = new ConcurrentHashMap<>();
+    protected final List<Consumer<Event>> consumers = new CopyOnWriteArrayList<>();
+    protected NotificationEmitter emitter;
+
+    public static class Event {
+        protected final MemoryNotificationInfo info;
+        protected final boolean collection;
+
+        public Event(MemoryNotificationInfo info, boolean collection) {
+            this.info = info;
+            this.collection = collection;
+        }
+
+        public String getPoolName() {
+            return info.getPoolName();
+        }
+
+        public MemoryUsage getUsage() {
+            return info.getUsage();
+        }
+
+        /**
+         * @return true if the threshold was crossed by usage after a collection
+         **/
+        public boolean isCollection() {
+            return collection;
+        }
+
+        /**
+         * @return number of times the threshold was crossed
+         **/
+        public long getCount() {
+            return info.getCount();
+        }
+
+        /**
+         * @return used memory as a fraction of max of the pool
+         **/
+        public double getFraction() {
+            MemoryUsage usage = info.getUsage();
+            return usage.getMax() > 0 ? usage.getUsed() / (double) usage.getMax() : 0;
+        }
+    }
+
+    /**
+     * Thresholds of a pool before registration, -1 if it wasn't changed
+     **/
+    protected static class PoolThresholds {
+        final MemoryPoolMXBean pool;
+        long usage = -1;
+        long collectionUsage = -1;
+
+        PoolThresholds(MemoryPoolMXBean pool) {
+            this.pool = pool;
+        }
+    }
+
+    public MemoryThresholdListener(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    /**
+     * @param usageThreshold           fraction of max for usage threshold, 0 to leave it unset
+     * @param collectionUsageThreshold fraction of max for collection usage threshold, 0 to leave it unset
+     **/
+    public synchronized void register(double usageThreshold, double collectionUsageThreshold) {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (max <= 0 || !accept(pool))
+                continue;
+
+            PoolThresholds previous = new PoolThresholds(pool);
+            if (usageThreshold > 0 && pool.isUsageThresholdSupported()) {
+                previous.usage = pool.getUsageThreshold();
+                pool.setUsageThreshold((long) (max * usageThreshold));
+            }
+            if (collectionUsageThreshold > 0 && pool.isCollectionUsageThresholdSupported()) {
+                previous.collectionUsage = pool.getCollectionUsageThreshold();
+                pool.setCollectionUsageThreshold((long) (max * collectionUsageThreshold));
+            }
+            if (previous.usage != -1 || previous.collectionUsage != -1)
+                pools.add(previous);
+        }
+
+        emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener(this, null, null);
+    }
+
+    /**
+     * Young generation pools are skipped, they are expected to fill up between collections
+     **/
+    protected boolean accept(MemoryPoolMXBean pool) {
+        String name = pool.getName();
+        return !AllocationStats.isYoung(name) && !name.contains("Survivor");
+    }
+
+    public synchronized void unregister() {
+        if (emitter != null) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException ignored) {
+            }
+            emitter = null;
+        }
+
+        for (PoolThresholds previous : pools) {
+            if (previous.usage != -1)
+                previous.pool.setUsageThreshold(previous.usage);
+            if (previous.collectionUsage != -1)
+                previous.pool.setCollectionUsageThreshold(previous.collectionUsage);
+        }
+        pools.clear();
+    }
+
+    public void addConsumer(Consumer<Event> consumer) {
+        consumers.add(consumer);
+    }
+
+    public void removeConsumer(Consumer<Event> consumer) {
+        consumers.remove(consumer);
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        boolean collection;
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type))
+            collection = false;
+        else if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type))
+            collection = true;
+        else
+            return;
+
+        MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        Event event = new Event(info, collection);
+
+        Recorder recorder = jvmMonitoring.getCollectingRecorder();
+        try {
+            if (recorder != null)
+                recorder.count(jvmMonitoring.metricJvmMemoryPoolThresholdExceeded, 1, getTags(info.getPoolName(), collection));
+
+            for (Consumer<Event> consumer : consumers) {
+                consumer.consume(event);
+            }
+        } catch (Exception e) {
+            if (recorder != null)
+                recorder.onError(e);
+        }
+    }
+
+    protected Recorder.Tags getTags(String memoryPool, boolean collection) {
+        String key = memoryPool + '|' + collection;
+        Recorder.Tags t = tags.get(key);
+        if (t == null)
+            tags.put(key, t = Recorder.Tags.of("memoryPool", memoryPool, "type", collection ? "collection" : "usage"));
+        return t;
+    }
+}
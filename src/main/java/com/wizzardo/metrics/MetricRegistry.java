@@ -0,0 +1,215 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Supplier;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds long-lived metrics that are aggregated in-process and flushed once per interval,
+ * registered in {@link JvmMonitoring} as a regular {@link JvmMonitoring.Recordable}
+ */
+public class MetricRegistry implements JvmMonitoring.Recordable {
+
+    protected final ConcurrentHashMap<Key, Metric> metrics = new ConcurrentHashMap<>();
+
+    public Counter counter(String metric, Recorder.Tags tags) {
+        Key key = new Key(metric, tags);
+        Metric m = metrics.get(key);
+        if (m == null) {
+            m = new Counter(metric, tags);
+            Metric prev = metrics.putIfAbsent(key, m);
+            if (prev != null)
+                m = prev;
+        }
+        return cast(m, Counter.class, metric);
+    }
+
+    public Gauge gauge(String metric, Recorder.Tags tags, Supplier<? extends Number> supplier) {
+        Key key = new Key(metric, tags);
+        Gauge gauge = new Gauge(metric, tags, supplier);
+        Metric prev = metrics.putIfAbsent(key, gauge);
+        if (prev != null)
+            throw new IllegalStateException("Metric '" + metric + "' with tags " + tags + " is already registered");
+        return gauge;
+    }
+
+    public Timer timer(String metric, Recorder.Tags tags) {
+        Key key = new Key(metric, tags);
+        Metric m = metrics.get(key);
+        if (m == null) {
+            m = new Timer(metric, tags);
+            Metric prev = metrics.putIfAbsent(key, m);
+            if (prev != null)
+                m = prev;
+        }
+        return cast(m, Timer.class, metric);
+    }
+
+    public boolean remove(Metric metric) {
+        return metrics.remove(new Key(metric.name, metric.tags), metric);
+    }
+
+    public int size() {
+        return metrics.size();
+    }
+
+    protected <T extends Metric> T cast(Metric m, Class<T> type, String name) {
+        if (!type.isInstance(m))
+            throw new IllegalStateException("Metric '" + name + "' is already registered as " + m.getClass().getSimpleName());
+        return type.cast(m);
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        for (Metric metric : metrics.values()) {
+            metric.flush(recorder);
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    protected static class Key {
+        final String name;
+        final String[] tags;
+        final int hash;
+
+        Key(String name, Recorder.Tags tags) {
+            this.name = name;
+            this.tags = tags == null ? new String[0] : tags.build().clone();
+            hash = 31 * name.hashCode() + Arrays.hashCode(this.tags);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return hash == key.hash && name.equals(key.name) && Arrays.equals(tags, key.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public static abstract class Metric {
+        protected final String name;
+        protected final Recorder.Tags tags;
+
+        protected Metric(String name, Recorder.Tags tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Recorder.Tags getTags() {
+            return tags;
+        }
+
+        protected abstract void flush(Recorder recorder);
+    }
+
+    public static class Counter extends Metric {
+        protected final LongAdder adder = new LongAdder();
+
+        protected Counter(String name, Recorder.Tags tags) {
+            super(name, tags);
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long value) {
+            adder.add(value);
+        }
+
+        @Override
+        protected void flush(Recorder recorder) {
+            long value = adder.sumThenReset();
+            if (value != 0)
+                recorder.count(name, value, tags);
+        }
+    }
+
+    public static class Gauge extends Metric {
+        protected final Supplier<? extends Number> supplier;
+
+        protected Gauge(String name, Recorder.Tags tags, Supplier<? extends Number> supplier) {
+            super(name, tags);
+            this.supplier = supplier;
+        }
+
+        @Override
+        protected void flush(Recorder recorder) {
+            Number value = supplier.supply();
+            if (value == null)
+                return;
+
+            if (value instanceof Double || value instanceof Float)
+                recorder.gauge(name, value.doubleValue(), tags);
+            else
+                recorder.gauge(name, value.longValue(), tags);
+        }
+    }
+
+    /**
+     * Aggregates durations in nanoseconds, flushes count, average and max in milliseconds
+     **/
+    public static class Timer extends Metric {
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder total = new LongAdder();
+        protected final AtomicLong max = new AtomicLong();
+        protected final String metricCount;
+        protected final String metricAvg;
+        protected final String metricMax;
+
+        protected Timer(String name, Recorder.Tags tags) {
+            super(name, tags);
+            metricCount = name + ".count";
+            metricAvg = name + ".avg";
+            metricMax = name + ".max";
+        }
+
+        public void record(long durationNanos) {
+            count.increment();
+            total.add(durationNanos);
+            long m;
+            while ((m = max.get()) < durationNanos && !max.compareAndSet(m, durationNanos)) {
+            }
+        }
+
+        public void rec(Runnable runnable) {
+            long time = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                record(Math.max(System.nanoTime() - time, 0));
+            }
+        }
+
+        @Override
+        protected void flush(Recorder recorder) {
+            long count = this.count.sumThenReset();
+            long total = this.total.sumThenReset();
+            long max = this.max.getAndSet(0);
+            if (count == 0)
+                return;
+
+            recorder.count(metricCount, count, tags);
+            recorder.gauge(metricAvg, total / 1_000_000d / count, tags);
+            recorder.gauge(metricMax, max / 1_000_000d, tags);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.wizzardo.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest value of every series collected by {@link JvmMonitoring}.
+ * Series are addressed by a long index that can be resolved once with {@link #indexOf(String, Recorder.Tags)}
+ * and then polled with {@link #get(long)} without locking or allocation.
+ * Writes are synchronized, reads are lock-free.
+ * Series that are not updated anymore are removed by {@link #evict(long)}, their slots are reused by new series,
+ * an index carries the generation of its slot, so an index of a removed series never resolves to another one.
+ */
+public class MetricsSnapshot {
+
+    protected static final int MIN_CAPACITY = 64;
+
+    protected volatile Data data = new Data(MIN_CAPACITY);
+    protected int[] free = new int[16];
+    protected int freeCount;
+    protected int size;
+
+    /**
+     * Slot arrays are shared by all Data instances of the same capacity, a new Data is published only when the key table is rebuilt
+     **/
+    protected static class Data {
+        final int capacity;
+        final AtomicLongArray keys;
+        final int[] slots;
+        final AtomicLongArray values;
+        final AtomicLongArray timestamps;
+        final AtomicIntegerArray generations;
+        final String[] names;
+        final String[][] tags;
+        int used;
+
+        Data(int capacity) {
+            this(capacity, new AtomicLongArray(capacity), new AtomicLongArray(capacity), new AtomicIntegerArray(capacity), new String[capacity], new String[capacity][]);
+        }
+
+        Data(int capacity, AtomicLongArray values, AtomicLongArray timestamps, AtomicIntegerArray generations, String[] names, String[][] tags) {
+            this.capacity = capacity;
+            keys = new AtomicLongArray(capacity * 2);
+            slots = new int[capacity * 2];
+            this.values = values;
+            this.timestamps = timestamps;
+            this.generations = generations;
+            this.names = names;
+            this.tags = tags;
+        }
+
+        int find(long key) {
+            int mask = slots.length - 1;
+            int i = (int) key & mask;
+            long k;
+            while ((k = keys.get(i)) != 0) {
+                if (k == key)
+                    return slots[i];
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * The key is written last, so a reader that finds it also sees the slot and its content
+         **/
+        void insert(long key, int slot) {
+            int mask = slots.length - 1;
+            int i = (int) key & mask;
+            while (keys.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = slot;
+            keys.set(i, key);
+        }
+
+        Data grow() {
+            int capacity = this.capacity * 2;
+            Data d = new Data(capacity);
+            for (int i = 0; i < used; i++) {
+                d.values.set(i, values.get(i));
+                d.timestamps.set(i, timestamps.get(i));
+                d.generations.set(i, generations.get(i));
+            }
+            System.arraycopy(names, 0, d.names, 0, used);
+            System.arraycopy(tags, 0, d.tags, 0, used);
+            d.used = used;
+            d.rehash();
+            return d;
+        }
+
+        Data withoutRemoved() {
+            Data d = new Data(capacity, values, timestamps, generations, names, tags);
+            d.used = used;
+            d.rehash();
+            return d;
+        }
+
+        void rehash() {
+            for (int i = 0; i < used; i++) {
+                if (names[i] != null)
+                    insert(key(names[i], tags[i]), i);
+            }
+        }
+    }
+
+    public synchronized void set(String metric, String[] tags, double value) {
+        long key = key(metric, tags);
+        Data data = this.data;
+        int slot = data.find(key);
+        if (slot == -1) {
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (data.used == data.capacity)
+                    this.data = data = data.grow();
+                slot = data.used++;
+            }
+            data.names[slot] = metric;
+            data.tags[slot] = tags.clone();
+            data.values.set(slot, Double.doubleToRawLongBits(value));
+            data.timestamps.set(slot, System.currentTimeMillis());
+            data.insert(key, slot);
+            size++;
+            return;
+        }
+
+        data.values.set(slot, Double.doubleToRawLongBits(value));
+        data.timestamps.set(slot, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes series that were not updated since given wall-clock time in millis, e.g. of threads that are gone.
+     * Indexes of remaining series stay valid, indexes of removed series resolve to nothing
+     *
+     * @return number of removed series
+     **/
+    public synchronized int evict(long updatedBefore) {
+        Data data = this.data;
+        int count = 0;
+        for (int i = 0; i < data.used; i++) {
+            if (data.names[i] == null || data.timestamps.get(i) >= updatedBefore)
+                continue;
+
+            // generation is changed first, so readers holding an index of this slot stop seeing its values
+            data.generations.set(i, (data.generations.get(i) + 1) & Integer.MAX_VALUE);
+            data.names[i] = null;
+            data.tags[i] = null;
+            if (freeCount == free.length)
+                free = Arrays.copyOf(free, free.length * 2);
+            free[freeCount++] = i;
+            count++;
+        }
+        if (count == 0)
+            return 0;
+
+        size -= count;
+        this.data = data.withoutRemoved();
+        return count;
+    }
+
+    /**
+     * @return index of the series or -1 if it wasn't collected yet
+     **/
+    public long indexOf(String metric, Recorder.Tags tags) {
+        Data data = this.data;
+        int slot = data.find(key(metric, tags == null ? new String[0] : tags.build()));
+        return slot == -1 ? -1 : index(slot, data.generations.get(slot));
+    }
+
+    public long indexOf(String metric) {
+        return indexOf(metric, null);
+    }
+
+    /**
+     * @return true if the series of given index wasn't evicted
+     **/
+    public boolean isValid(long index) {
+        return index >= 0 && data.generations.get(slot(index)) == generation(index);
+    }
+
+    /**
+     * @return last value of the series or NaN if it was evicted
+     **/
+    public double get(long index) {
+        if (index < 0)
+            return Double.NaN;
+
+        Data data = this.data;
+        int slot = slot(index);
+        long value = data.values.get(slot);
+        return data.generations.get(slot) == generation(index) ? Double.longBitsToDouble(value) : Double.NaN;
+    }
+
+    public double get(String metric, Recorder.Tags tags, double defaultValue) {
+        Data data = this.data;
+        int slot = data.find(key(metric, tags == null ? new String[0] : tags.build()));
+        return slot == -1 ? defaultValue : Double.longBitsToDouble(data.values.get(slot));
+    }
+
+    public double get(String metric, double defaultValue) {
+        return get(metric, null, defaultValue);
+    }
+
+    /**
+     * @return wall-clock time in millis when the series was updated last time or 0 if it was evicted
+     **/
+    public long getTimestamp(long index) {
+        if (index < 0)
+            return 0;
+
+        Data data = this.data;
+        int slot = slot(index);
+        long timestamp = data.timestamps.get(slot);
+        return data.generations.get(slot) == generation(index) ? timestamp : 0;
+    }
+
+    /**
+     * @return number of series
+     **/
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return indexes of all series, for listing
+     **/
+    public synchronized long[] indexes() {
+        Data data = this.data;
+        long[] indexes = new long[size];
+        int j = 0;
+        for (int i = 0; i < data.used; i++) {
+            if (data.names[i] != null)
+                indexes[j++] = index(i, data.generations.get(i));
+        }
+        return indexes;
+    }
+
+    /**
+     * @return name of the series or null if it was evicted
+     **/
+    public synchronized String getName(long index) {
+        return isValid(index) ? data.names[slot(index)] : null;
+    }
+
+    /**
+     * @return tags of the series or null if it was evicted
+     **/
+    public synchronized String[] getTags(long index) {
+        return isValid(index) ? data.tags[slot(index)].clone() : null;
+    }
+
+    protected static long index(int slot, int generation) {
+        return ((long) generation << 32) | slot;
+    }
+
+    protected static int slot(long index) {
+        return (int) index;
+    }
+
+    protected static int generation(long index) {
+        return (int) (index >>> 32);
+    }
+
+    protected static long key(String metric, String[] tags) {
+        return CardinalityLimiter.hash(metric.hashCode(), tags);
+    }
+
+    @Override
+    public synchronized String toString() {
+        Data data = this.data;
+        StringBuilder sb = new StringBuilder("MetricsSnapshot{");
+        for (int i = 0; i < data.used; i++) {
+            if (data.names[i] == null)
+                continue;
+            if (sb.length() > 16)
+                sb.append(", ");
+            sb.append(data.names[i]).append(Arrays.toString(data.tags[i])).append('=').append(Double.longBitsToDouble(data.values.get(i)));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,194 @@
+package com.wizzardo.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports reserved and committed native memory per category from Native Memory Tracking summary
+ * ('VM.native_memory summary'), and their growth since a baseline taken on the first collection.
+ * Requires the JVM to be started with -XX:NativeMemoryTracking=summary or detail, otherwise it removes itself.
+ */
+public class NativeMemoryStats implements JvmMonitoring.Recordable {
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final DiagnosticCommand command;
+    protected final Map<String, Category> categories = new HashMap<>();
+    protected volatile boolean resetBaseline = true;
+    protected boolean valid = true;
+
+    public interface Listener {
+        /**
+         * @param category  name of the category as printed by the JVM, 'Total' for the totals
+         * @param reserved  reserved bytes or -1 if absent
+         * @param committed committed bytes or -1 if absent
+         **/
+        void onCategory(String category, long reserved, long committed);
+    }
+
+    protected static class Category {
+        final Recorder.Tags tags;
+        long reserved;
+        long committed;
+        long baselineReserved;
+        long baselineCommitted;
+
+        Category(String name) {
+            tags = Recorder.Tags.of("category", name);
+        }
+    }
+
+    public NativeMemoryStats(JvmMonitoring jvmMonitoring) {
+        this(jvmMonitoring, new DiagnosticCommand());
+    }
+
+    public NativeMemoryStats(JvmMonitoring jvmMonitoring, DiagnosticCommand command) {
+        this.jvmMonitoring = jvmMonitoring;
+        this.command = command;
+    }
+
+    @Override
+    public void record(final Recorder recorder) {
+        String summary;
+        try {
+            summary = command.invoke("vmNativeMemory", "summary");
+        } catch (Exception e) {
+            valid = false;
+            recorder.onError(e);
+            return;
+        }
+
+        if (summary == null || summary.indexOf("Total:") == -1) {
+            valid = false;
+            return;
+        }
+
+        final boolean baseline = resetBaseline;
+        resetBaseline = false;
+        parse(summary, new Listener() {
+            @Override
+            public void onCategory(String name, long reserved, long committed) {
+                if (reserved < 0 || committed < 0)
+                    return;
+
+                Category category = categories.get(name);
+                boolean created = category == null;
+                if (created)
+                    categories.put(name, category = new Category(name));
+
+                // categories that show up later start from their first values, zero is a valid value to grow from
+                if (baseline || created) {
+                    category.baselineReserved = reserved;
+                    category.baselineCommitted = committed;
+                }
+                category.reserved = reserved;
+                category.committed = committed;
+
+                recorder.gauge(jvmMonitoring.metricJvmNativeMemoryReserved, reserved, category.tags);
+                recorder.gauge(jvmMonitoring.metricJvmNativeMemoryCommitted, committed, category.tags);
+                recorder.gauge(jvmMonitoring.metricJvmNativeMemoryReservedDelta, reserved - category.baselineReserved, category.tags);
+                recorder.gauge(jvmMonitoring.metricJvmNativeMemoryCommittedDelta, committed - category.baselineCommitted, category.tags);
+            }
+        });
+    }
+
+    /**
+     * Takes the next collected values as the new baseline for deltas
+     **/
+    public void resetBaseline() {
+        resetBaseline = true;
+    }
+
+    /**
+     * Parses output of 'VM.native_memory summary' in a single pass over the text.
+     * Only the totals line and category lines (starting with '-') are used, other lines are skipped,
+     * so it doesn't depend on details that differ between JDK versions.
+     **/
+    public static void parse(CharSequence s, Listener listener) {
+        int length = s.length();
+        int from = 0;
+        while (from < length) {
+            int to = from;
+            while (to < length && s.charAt(to) != '\n')
+                to++;
+
+            int i = from;
+            while (i < to && s.charAt(i) == ' ')
+                i++;
+
+            if (i < to && s.charAt(i) == '-') {
+                int open = indexOf(s, "(", i, to);
+                if (open != -1) {
+                    String name = trim(s, i + 1, open);
+                    if (!name.isEmpty())
+                        listener.onCategory(name, value(s, "reserved=", open, to), value(s, "committed=", open, to));
+                }
+            } else if (startsWith(s, "Total:", i, to)) {
+                listener.onCategory("Total", value(s, "reserved=", i, to), value(s, "committed=", i, to));
+            }
+
+            from = to + 1;
+        }
+    }
+
+    protected static long value(CharSequence s, String key, int from, int to) {
+        int i = indexOf(s, key, from, to);
+        if (i == -1)
+            return -1;
+
+        i += key.length();
+        long value = 0;
+        int start = i;
+        char c;
+        while (i < to && (c = s.charAt(i)) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            i++;
+        }
+        if (i == start)
+            return -1;
+
+        if (i < to) {
+            switch (s.charAt(i)) {
+                case 'K':
+                    return value << 10;
+                case 'M':
+                    return value << 20;
+                case 'G':
+                    return value << 30;
+            }
+        }
+        return value;
+    }
+
+    protected static int indexOf(CharSequence s, String key, int from, int to) {
+        int last = to - key.length();
+        for (int i = from; i <= last; i++) {
+            if (startsWith(s, key, i, to))
+                return i;
+        }
+        return -1;
+    }
+
+    protected static boolean startsWith(CharSequence s, String key, int from, int to) {
+        if (to - from < key.length())
+            return false;
+
+        for (int j = 0; j < key.length(); j++) {
+            if (s.charAt(from + j) != key.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    protected static String trim(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ')
+            from++;
+        while (to > from && s.charAt(to - 1) == ' ')
+            to--;
+        return s.subSequence(from, to).toString();
+    }
+
+    @Override
+    public boolean isValid() {
+        return valid;
+    }
+}
@@ -13,6 +13,11 @@ public class NoopRecorder extends Recorder {
     }
 
 
+    @Override
+    public Recorder scoped(String prefix, Tags tags) {
+        return this;
+    }
+
     @Override
     public void rec(String metric, long duration, Tags tags) {
     }
@@ -0,0 +1,150 @@
+package com.wizzardo.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps cpu usage of {@link JvmMonitoring} within a budget expressed as a fraction of one core.
+ * Counts cpu time spent in Recordables and in the {@link Profiler} thread, once per window
+ * it raises degradation level if the budget is exceeded and lowers it when usage stays below
+ * {@link #restoreThreshold} of the budget for {@link #restoreWindows} consecutive windows,
+ * so usage that hovers around the budget doesn't switch levels back and forth every window.
+ * <p>
+ * Levels: 1 - profiler is suspended, 2 - per-core and per-thread series are disabled,
+ * 3 - collection intervals are multiplied by {@link #intervalMultiplier}
+ */
+public class OverheadGovernor {
+    public static final int MAX_LEVEL = 3;
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final double budget;
+    protected final AtomicLong cpuTime = new AtomicLong();
+    protected final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    protected double restoreThreshold = 0.5;
+    protected int intervalMultiplier = 4;
+    protected int restoreWindows = 3;
+    protected int goodWindows;
+    protected long windowStart = System.nanoTime();
+    protected long profilerCpuTime;
+    protected long profilerId = -1;
+    protected volatile int level;
+    protected volatile double usage;
+
+    public OverheadGovernor(JvmMonitoring jvmMonitoring, double budget) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("budget must be > 0");
+
+        this.jvmMonitoring = jvmMonitoring;
+        this.budget = budget;
+
+        Profiler profiler = jvmMonitoring.profiler;
+        if (profiler != null && threadMXBean.isThreadCpuTimeSupported()) {
+            profilerId = profiler.getId();
+            profilerCpuTime = Math.max(threadMXBean.getThreadCpuTime(profilerId), 0);
+        }
+    }
+
+    public void addCpuTime(long nanos) {
+        cpuTime.addAndGet(nanos);
+    }
+
+    public void evaluate(Recorder recorder) {
+        long now = System.nanoTime();
+        long wall = now - windowStart;
+        if (wall <= 0)
+            return;
+
+        windowStart = now;
+        long cpu = cpuTime.getAndSet(0) + getProfilerCpuTimeDiff();
+        usage = cpu * 1d / wall;
+
+        if (usage < budget * restoreThreshold)
+            goodWindows++;
+        else
+            goodWindows = 0;
+
+        if (usage > budget && level < MAX_LEVEL) {
+            jvmMonitoring.applyDegradation(++level);
+        } else if (goodWindows >= restoreWindows && level > 0) {
+            jvmMonitoring.applyDegradation(--level);
+            goodWindows = 0;
+        }
+
+        recorder.gauge(jvmMonitoring.metricJvmMonitoringOverhead, usage * 100);
+        recorder.gauge(jvmMonitoring.metricJvmMonitoringDegradation, level);
+    }
+
+    /**
+     * Cpu time of the profiler thread since the previous call, a profiler created after the governor is counted from its start
+     **/
+    protected long getProfilerCpuTimeDiff() {
+        Profiler profiler = jvmMonitoring.profiler;
+        if (profiler == null || !threadMXBean.isThreadCpuTimeSupported())
+            return 0;
+
+        long time = threadMXBean.getThreadCpuTime(profiler.getId());
+        if (time < 0)
+            return 0;
+
+        if (profilerId != profiler.getId()) {
+            profilerId = profiler.getId();
+            profilerCpuTime = 0;
+        }
+
+        long diff = Math.max(time - profilerCpuTime, 0);
+        profilerCpuTime = time;
+        return diff;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return cpu usage of monitoring during the last window as a fraction of one core
+     **/
+    public double getUsage() {
+        return usage;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public double getRestoreThreshold() {
+        return restoreThreshold;
+    }
+
+    /**
+     * Fraction of the budget usage has to stay below before a level is restored, must be in (0, 1)
+     **/
+    public void setRestoreThreshold(double restoreThreshold) {
+        if (!(restoreThreshold > 0 && restoreThreshold < 1))
+            throw new IllegalArgumentException("restoreThreshold must be > 0 and < 1, got " + restoreThreshold);
+        this.restoreThreshold = restoreThreshold;
+    }
+
+    public int getRestoreWindows() {
+        return restoreWindows;
+    }
+
+    /**
+     * Number of consecutive windows below {@link #restoreThreshold} required to restore one level
+     **/
+    public void setRestoreWindows(int restoreWindows) {
+        if (restoreWindows < 1)
+            throw new IllegalArgumentException("restoreWindows must be >= 1, got " + restoreWindows);
+        this.restoreWindows = restoreWindows;
+    }
+
+    public int getIntervalMultiplier() {
+        return intervalMultiplier;
+    }
+
+    public void setIntervalMultiplier(int intervalMultiplier) {
+        if (intervalMultiplier < 1)
+            throw new IllegalArgumentException("intervalMultiplier must be >= 1, got " + intervalMultiplier);
+        this.intervalMultiplier = intervalMultiplier;
+    }
+}
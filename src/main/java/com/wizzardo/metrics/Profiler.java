@@ -46,7 +46,7 @@ public class Profiler extends Thread {
         public SimpleThreadInfo(ThreadInfo threadInfo, JvmMonitoring jvmMonitoring) {
             id = threadInfo.getThreadId();
             name = threadInfo.getThreadName();
-            group = jvmMonitoring.resolveThreadGroupName(threadInfo.getThreadName(), JvmMonitoring.threadGroup(threadInfo.getThreadId()).getName());
+            group = jvmMonitoring.getThreadGroupName(id, name);
         }
     }
 
@@ -214,6 +214,9 @@ public class Profiler extends Thread {
         return System.nanoTime() + durationNanos;
     }
 
+    /**
+     * ThreadMXBean returns no ThreadInfo for ids of virtual threads, so they are skipped by the sampling loop
+     **/
     public void startProfiling(long id) {
         profilingThreads.add(id);
     }
@@ -1,6 +1,7 @@
 package com.wizzardo.metrics;
 
 import com.wizzardo.tools.interfaces.Consumer;
+import com.wizzardo.tools.interfaces.Supplier;
 import com.wizzardo.tools.misc.Unchecked;
 
 import java.util.ArrayList;
@@ -20,7 +21,8 @@ public class Recorder {
     public static final String METHOD_ALLOCATION = "method.allocation";
 
     protected final String[] EMPTY_ARRAY = new String[0];
-    private Client client;
+    protected final Client client;
+    protected final MetricRegistry registry;
     private Consumer<Exception> onError = new Consumer<Exception>() {
         @Override
         public void consume(Exception e) {
@@ -29,14 +31,29 @@ public class Recorder {
     };
     protected boolean recordAllocation;
     protected boolean recordCpuTime;
+    protected boolean recordScopes;
+    protected volatile CardinalityLimiter cardinalityLimiter;
 
     public Recorder(Client client) {
+        this(client, new MetricRegistry());
+    }
+
+    protected Recorder(Client client, MetricRegistry registry) {
         this.client = client;
+        this.registry = registry;
         CpuAndAllocationStats cpuAndAllocationStats = CpuAndAllocationStats.get();
         recordCpuTime = cpuAndAllocationStats.cpuTimeEnabled;
         recordAllocation = cpuAndAllocationStats.allocationEnabled;
     }
 
+    /**
+     * Creates a recorder that shares client, registry and cardinality limiter with this one,
+     * prefixes every metric with 'prefix.' and adds given tags to every call
+     **/
+    public Recorder scoped(String prefix, Tags tags) {
+        return new ScopedRecorder(this, prefix, tags);
+    }
+
     public void rec(Runnable runnable) {
         rec(METHOD_DURATION, runnable);
     }
@@ -67,15 +84,28 @@ public class Recorder {
             }
         }
 
+        ScopeStack scopes = null;
+        if (recordScopes) {
+            if (cpuAndAllocationStats == null)
+                cpuAndAllocationStats = CpuAndAllocationStats.get();
+            scopes = cpuAndAllocationStats.scopes;
+            scopes.push();
+        }
+
         long time = System.nanoTime();
         T result = null;
-        if (runnable != null)
-            runnable.run();
-
-        if (callable != null)
-            result = Unchecked.call(callable);
+        try {
+            if (runnable != null)
+                runnable.run();
+
+            if (callable != null)
+                result = Unchecked.call(callable);
+        } finally {
+            time = Math.max(System.nanoTime() - time, 0);
+            if (scopes != null)
+                closeScope(scopes, cpuAndAllocationStats, metric, tags, time, allocated);
+        }
 
-        time = Math.max(System.nanoTime() - time, 0);
         rec(metric, time / 1_000_000, tags);
 
         if (recordAllocation || recordCpuTime) {
@@ -103,6 +133,27 @@ public class Recorder {
         return result;
     }
 
+    protected void closeScope(ScopeStack scopes, CpuAndAllocationStats cpuAndAllocationStats, String metric, Tags tags, long time, long allocatedBefore) {
+        long allocated = 0;
+        if (recordAllocation)
+            allocated = Math.max(cpuAndAllocationStats.getTotalAllocation() - allocatedBefore, 0);
+
+        long childTime = scopes.getChildTime();
+        long childAllocation = scopes.getChildAllocation();
+        scopes.pop(time, allocated);
+
+        try {
+            boolean action = ACTION_DURATION.equals(metric);
+            Tags scopeTags = Tags.of(tags).add("scope", metric);
+            histogram(action ? ACTION_TIME : METHOD_TIME, Math.max(time - childTime, 0), Tags.of(scopeTags).add("type", "self"));
+            histogram(action ? ACTION_TIME : METHOD_TIME, childTime, Tags.of(scopeTags).add("type", "child"));
+            if (recordAllocation)
+                histogram(action ? ACTION_ALLOCATION : METHOD_ALLOCATION, Math.max(allocated - childAllocation, 0), scopeTags.add("type", "self"));
+        } catch (Exception e) {
+            onError(e);
+        }
+    }
+
     public <T> T rec(Callable<T> callable) {
         return rec(METHOD_DURATION, callable);
     }
@@ -125,12 +176,24 @@ public class Recorder {
 
     public void rec(String metric, long duration, Tags tags) {
         try {
-            client.histogram(metric, duration * 0.001, renderTags(tags));
+            client.histogram(metricName(metric), duration * 0.001, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
     }
 
+    /**
+     * Enables tracking of nested {@link #rec} calls, each call reports its self and child time
+     * (and self allocation if it is enabled) tagged with 'scope' equal to its metric name
+     **/
+    public void setRecordScopes(boolean recordScopes) {
+        this.recordScopes = recordScopes;
+    }
+
+    public boolean isRecordScopes() {
+        return recordScopes;
+    }
+
     protected void onError(Exception e) {
         onError.consume(e);
     }
@@ -139,13 +202,47 @@ public class Recorder {
         this.onError = onError;
     }
 
+    protected String metricName(String metric) {
+        return metric;
+    }
+
     protected String[] renderTags(Tags tags) {
         return tags == null ? EMPTY_ARRAY : tags.build();
     }
 
+    protected String[] renderTags(String metric, Tags tags) {
+        return limit(metric, renderTags(tags));
+    }
+
+    protected String[] limit(String metric, String[] rendered) {
+        CardinalityLimiter limiter = cardinalityLimiter;
+        if (limiter == null || rendered.length == 0)
+            return rendered;
+
+        return limiter.limit(metric, rendered);
+    }
+
+    /**
+     * Limits number of distinct tag sets per metric, new combinations above the limit are reported with 'cardinality:other' tag
+     * and counted in {@link CardinalityLimiter#METRIC_OVERFLOW}. 0 disables the limit.
+     *
+     * @throws IllegalArgumentException if limit is above {@link CardinalityLimiter#MAX_LIMIT}
+     **/
+    public void setCardinalityLimit(int limit) {
+        if (limit > CardinalityLimiter.MAX_LIMIT)
+            throw new IllegalArgumentException("cardinality limit must be <= " + CardinalityLimiter.MAX_LIMIT + ", got " + limit);
+
+        cardinalityLimiter = limit > 0 ? new CardinalityLimiter(limit, registry) : null;
+    }
+
+    public int getCardinalityLimit() {
+        CardinalityLimiter limiter = cardinalityLimiter;
+        return limiter == null ? 0 : limiter.getLimit();
+    }
+
     public void count(String metric, long value, Tags tags) {
         try {
-            client.count(metric, value, renderTags(tags));
+            client.count(metricName(metric), value, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
@@ -153,7 +250,7 @@ public class Recorder {
 
     public void histogram(String metric, long value, Tags tags) {
         try {
-            client.histogram(metric, value, renderTags(tags));
+            client.histogram(metricName(metric), value, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
@@ -161,7 +258,7 @@ public class Recorder {
 
     public void histogram(String metric, double value, Tags tags) {
         try {
-            client.histogram(metric, value, renderTags(tags));
+            client.histogram(metricName(metric), value, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
@@ -177,7 +274,7 @@ public class Recorder {
 
     public void gauge(String metric, long value, Tags tags) {
         try {
-            client.gauge(metric, value, renderTags(tags));
+            client.gauge(metricName(metric), value, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
@@ -185,19 +282,48 @@ public class Recorder {
 
     public void gauge(String metric, double value, Tags tags) {
         try {
-            client.gauge(metric, value, renderTags(tags));
+            client.gauge(metricName(metric), value, renderTags(metric, tags));
         } catch (Exception e) {
             onError(e);
         }
     }
 
+    /**
+     * Starts {@link RequestAccounting} on current thread, cpu and allocation of all threads that work on the request
+     * are reported on {@link RequestAccounting#finish()}
+     **/
+    public RequestAccounting startRequest(String endpoint) {
+        return RequestAccounting.start(this, endpoint);
+    }
+
+    public RequestAccounting startRequest(Tags tags) {
+        return RequestAccounting.start(this, tags);
+    }
+
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    public MetricRegistry.Counter counter(String metric, Tags tags) {
+        return registry.counter(metric, tags);
+    }
+
+    public MetricRegistry.Gauge gaugeFn(String metric, Tags tags, Supplier<? extends Number> supplier) {
+        return registry.gauge(metric, tags, supplier);
+    }
+
+    public MetricRegistry.Timer timer(String metric, Tags tags) {
+        return registry.timer(metric, tags);
+    }
+
     public static class Tags {
         List<String> tags = new ArrayList<>();
         String[] build;
 
         public static Tags of(Tags tags) {
             Tags t = new Tags();
-            t.tags.addAll(tags.tags);
+            if (tags != null)
+                t.tags.addAll(tags.tags);
             return t;
         }
 
@@ -0,0 +1,214 @@
+package com.wizzardo.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects cpu time, user time and allocated bytes of every thread that works on a request.
+ * Work handed to other threads is counted when it is wrapped with {@link #wrap(Runnable)},
+ * {@link #wrap(Callable)} or submitted through {@link #wrap(Executor)}.
+ * Work that is still running when {@link #finish()} is called is not counted.
+ * Counting is bound to threads: every {@link Scope} is closed on the thread that opened it,
+ * so a request that is finished on another thread has to be {@link #detach() detached} from the starting thread first.
+ */
+public class RequestAccounting {
+    public static final String METRIC_DURATION = "request.duration";
+    public static final String METRIC_CPU = "request.cpu";
+    public static final String METRIC_CPU_USER = "request.cpu.user";
+    public static final String METRIC_ALLOCATION = "request.allocation";
+
+    protected static final ThreadLocal<RequestAccounting> CURRENT = new ThreadLocal<>();
+
+    protected final Recorder recorder;
+    protected final Recorder.Tags tags;
+    protected final long started;
+    protected final AtomicLong cpuTime = new AtomicLong();
+    protected final AtomicLong cpuUserTime = new AtomicLong();
+    protected final AtomicLong allocation = new AtomicLong();
+    protected final boolean cpuTimeEnabled;
+    protected final boolean allocationEnabled;
+    protected final Scope initial;
+    protected volatile boolean finished;
+
+    protected RequestAccounting(Recorder recorder, Recorder.Tags tags) {
+        this.recorder = recorder;
+        this.tags = tags;
+        started = System.nanoTime();
+        CpuAndAllocationStats stats = CpuAndAllocationStats.get();
+        cpuTimeEnabled = stats.cpuTimeEnabled;
+        allocationEnabled = stats.allocationEnabled;
+        initial = attach();
+    }
+
+    /**
+     * Starts accounting on current thread, metrics are reported with given tags on {@link #finish()}
+     **/
+    public static RequestAccounting start(Recorder recorder, Recorder.Tags tags) {
+        return new RequestAccounting(recorder, tags);
+    }
+
+    public static RequestAccounting start(Recorder recorder, String endpoint) {
+        return new RequestAccounting(recorder, Recorder.Tags.of("endpoint", endpoint));
+    }
+
+    /**
+     * @return request bound to current thread or null, a finished request that was not detached is unbound here
+     **/
+    public static RequestAccounting current() {
+        RequestAccounting accounting = CURRENT.get();
+        if (accounting != null && accounting.finished) {
+            CURRENT.remove();
+            return null;
+        }
+        return accounting;
+    }
+
+    /**
+     * Wraps executor so that tasks submitted while a request is active on the submitting thread are counted to that request
+     **/
+    public static Executor wrap(final Executor executor) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                RequestAccounting accounting = current();
+                executor.execute(accounting == null ? command : accounting.wrap(command));
+            }
+        };
+    }
+
+    public Runnable wrap(final Runnable runnable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Scope scope = attach();
+                try {
+                    runnable.run();
+                } finally {
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    public <T> Callable<T> wrap(final Callable<T> callable) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Scope scope = attach();
+                try {
+                    return callable.call();
+                } finally {
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Binds this request to current thread until returned scope is closed on the same thread, intended for try-with-resources
+     **/
+    public Scope attach() {
+        return new Scope(this, CURRENT.get());
+    }
+
+    /**
+     * Stops counting on the thread that started the request, must be called on that thread.
+     * Use it when the request is handed off and finished on another thread.
+     **/
+    public RequestAccounting detach() {
+        initial.close();
+        return this;
+    }
+
+    /**
+     * Reports what was accumulated so far, may be called on any thread.
+     * The starting thread is counted only if it is the calling one or if the request was detached before.
+     **/
+    public void finish() {
+        if (finished)
+            return;
+
+        if (initial.isOwner())
+            initial.close();
+        finished = true;
+
+        long duration = Math.max(System.nanoTime() - started, 0);
+        recorder.histogram(METRIC_DURATION, duration / 1_000_000d, tags);
+        if (cpuTimeEnabled) {
+            recorder.histogram(METRIC_CPU, cpuTime.get() / 1_000_000d, tags);
+            recorder.histogram(METRIC_CPU_USER, cpuUserTime.get() / 1_000_000d, tags);
+        }
+        if (allocationEnabled)
+            recorder.histogram(METRIC_ALLOCATION, allocation.get(), tags);
+    }
+
+    public long getCpuTime() {
+        return cpuTime.get();
+    }
+
+    public long getCpuUserTime() {
+        return cpuUserTime.get();
+    }
+
+    public long getAllocation() {
+        return allocation.get();
+    }
+
+    public static class Scope implements AutoCloseable {
+        protected final RequestAccounting accounting;
+        protected final RequestAccounting previous;
+        protected final Thread thread;
+        protected final CpuAndAllocationStats stats;
+        protected final boolean counting;
+        protected final long cpuTime;
+        protected final long cpuUserTime;
+        protected final long allocation;
+        protected boolean closed;
+
+        protected Scope(RequestAccounting accounting, RequestAccounting previous) {
+            this.accounting = accounting;
+            this.previous = previous;
+            thread = Thread.currentThread();
+            stats = CpuAndAllocationStats.get();
+            counting = previous != accounting;
+            if (counting) {
+                cpuTime = stats.getTotalCpuTime();
+                cpuUserTime = stats.getTotalCpuUserTime();
+                allocation = stats.getTotalAllocation();
+                CURRENT.set(accounting);
+            } else {
+                cpuTime = 0;
+                cpuUserTime = 0;
+                allocation = 0;
+            }
+        }
+
+        public boolean isOwner() {
+            return thread == Thread.currentThread();
+        }
+
+        /**
+         * Adds counters of this thread since the scope was opened, throws IllegalStateException if called on another thread
+         **/
+        @Override
+        public void close() {
+            if (!isOwner())
+                throw new IllegalStateException("Scope must be closed on the thread that opened it: " + thread.getName());
+            if (closed || !counting)
+                return;
+
+            closed = true;
+            if (!accounting.finished) {
+                accounting.cpuTime.addAndGet(Math.max(stats.getTotalCpuTime() - cpuTime, 0));
+                accounting.cpuUserTime.addAndGet(Math.max(stats.getTotalCpuUserTime() - cpuUserTime, 0));
+                accounting.allocation.addAndGet(Math.max(stats.getTotalAllocation() - allocation, 0));
+            }
+
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        }
+    }
+}
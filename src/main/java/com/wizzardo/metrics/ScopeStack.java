@@ -0,0 +1,55 @@
+package com.wizzardo.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread stack of open {@link Recorder#rec} scopes, backed by preallocated arrays.
+ * Each level accumulates time and allocation of its already closed children.
+ */
+public class ScopeStack {
+    protected long[] childTime;
+    protected long[] childAllocation;
+    protected int depth;
+
+    public ScopeStack() {
+        this(16);
+    }
+
+    public ScopeStack(int capacity) {
+        childTime = new long[capacity];
+        childAllocation = new long[capacity];
+    }
+
+    public void push() {
+        if (depth == childTime.length) {
+            childTime = Arrays.copyOf(childTime, depth * 2);
+            childAllocation = Arrays.copyOf(childAllocation, depth * 2);
+        }
+        childTime[depth] = 0;
+        childAllocation[depth] = 0;
+        depth++;
+    }
+
+    /**
+     * Closes current scope and attributes its total time and allocation to the parent scope
+     **/
+    public void pop(long time, long allocation) {
+        depth--;
+        if (depth > 0) {
+            childTime[depth - 1] += time;
+            childAllocation[depth - 1] += allocation;
+        }
+    }
+
+    public long getChildTime() {
+        return childTime[depth - 1];
+    }
+
+    public long getChildAllocation() {
+        return childAllocation[depth - 1];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
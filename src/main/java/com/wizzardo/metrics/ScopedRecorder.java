@@ -0,0 +1,105 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Supplier;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recorder with pre-bound metric prefix and tags, created by {@link Recorder#scoped(String, Tags)}.
+ * Base tags are rendered once and joined with per-call tags with a single array copy.
+ */
+public class ScopedRecorder extends Recorder {
+
+    protected final Recorder root;
+    protected final String prefix;
+    protected final String namePrefix;
+    protected final Tags baseTags;
+    protected final String[] baseTagsRendered;
+    protected final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+
+    protected ScopedRecorder(Recorder root, String prefix, Tags tags) {
+        super(root.client, root.registry);
+        this.root = root;
+        this.prefix = prefix == null ? "" : prefix;
+        this.namePrefix = this.prefix.isEmpty() ? "" : this.prefix + ".";
+        recordScopes = root.recordScopes;
+        this.baseTags = Tags.of(tags);
+        this.baseTagsRendered = baseTags.build().clone();
+    }
+
+    @Override
+    public Recorder scoped(String prefix, Tags tags) {
+        if (prefix == null || prefix.isEmpty())
+            prefix = this.prefix;
+        else if (!this.prefix.isEmpty())
+            prefix = this.prefix + "." + prefix;
+
+        return new ScopedRecorder(root, prefix, withBaseTags(tags));
+    }
+
+    @Override
+    protected String metricName(String metric) {
+        if (namePrefix.isEmpty())
+            return metric;
+
+        String name = names.get(metric);
+        if (name == null) {
+            name = namePrefix + metric;
+            names.put(metric, name);
+        }
+        return name;
+    }
+
+    @Override
+    protected String[] renderTags(String metric, Tags tags) {
+        String[] rendered = renderTags(tags);
+        if (rendered.length == 0)
+            return root.limit(metricName(metric), baseTagsRendered);
+        if (baseTagsRendered.length == 0)
+            return root.limit(metricName(metric), rendered);
+
+        String[] result = new String[baseTagsRendered.length + rendered.length];
+        System.arraycopy(baseTagsRendered, 0, result, 0, baseTagsRendered.length);
+        System.arraycopy(rendered, 0, result, baseTagsRendered.length, rendered.length);
+        return root.limit(metricName(metric), result);
+    }
+
+    protected Tags withBaseTags(Tags tags) {
+        Tags combined = Tags.of(baseTags);
+        if (tags != null)
+            for (int i = 0; i < tags.size(); i++) {
+                combined.tags.add(tags.get(i));
+            }
+        return combined;
+    }
+
+    @Override
+    public MetricRegistry.Counter counter(String metric, Tags tags) {
+        return root.counter(metricName(metric), withBaseTags(tags));
+    }
+
+    @Override
+    public MetricRegistry.Gauge gaugeFn(String metric, Tags tags, Supplier<? extends Number> supplier) {
+        return root.gaugeFn(metricName(metric), withBaseTags(tags), supplier);
+    }
+
+    @Override
+    public MetricRegistry.Timer timer(String metric, Tags tags) {
+        return root.timer(metricName(metric), withBaseTags(tags));
+    }
+
+    @Override
+    public void setCardinalityLimit(int limit) {
+        root.setCardinalityLimit(limit);
+    }
+
+    @Override
+    public int getCardinalityLimit() {
+        return root.getCardinalityLimit();
+    }
+
+    @Override
+    protected void onError(Exception e) {
+        root.onError(e);
+    }
+}
@@ -0,0 +1,88 @@
+package com.wizzardo.metrics;
+
+/**
+ * Passes everything to the root recorder and keeps last values in {@link MetricsSnapshot},
+ * gauges that didn't change can be dropped by {@link GaugeSuppressor}
+ */
+public class SnapshotRecorder extends Recorder {
+
+    protected final Recorder root;
+    protected final MetricsSnapshot snapshot;
+    protected final GaugeSuppressor suppressor;
+
+    public SnapshotRecorder(Recorder root, MetricsSnapshot snapshot) {
+        this(root, snapshot, null);
+    }
+
+    /**
+     * @param snapshot   storage for last values, can be null
+     * @param suppressor filter for unchanged gauges, can be null
+     **/
+    public SnapshotRecorder(Recorder root, MetricsSnapshot snapshot, GaugeSuppressor suppressor) {
+        super(root.client, root.registry);
+        this.root = root;
+        this.snapshot = snapshot;
+        this.suppressor = suppressor;
+    }
+
+    protected void store(String metric, Tags tags, double value) {
+        if (snapshot != null)
+            snapshot.set(metric, renderTags(tags), value);
+    }
+
+    protected boolean shouldEmit(String metric, Tags tags, double value) {
+        return suppressor == null || suppressor.shouldEmit(metric, renderTags(tags), value);
+    }
+
+    public MetricsSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public void rec(String metric, long duration, Tags tags) {
+        store(metric, tags, duration);
+        root.rec(metric, duration, tags);
+    }
+
+    @Override
+    public void count(String metric, long value, Tags tags) {
+        store(metric, tags, value);
+        root.count(metric, value, tags);
+    }
+
+    @Override
+    public void histogram(String metric, long value, Tags tags) {
+        store(metric, tags, value);
+        root.histogram(metric, value, tags);
+    }
+
+    @Override
+    public void histogram(String metric, double value, Tags tags) {
+        store(metric, tags, value);
+        root.histogram(metric, value, tags);
+    }
+
+    @Override
+    public void gauge(String metric, long value, Tags tags) {
+        store(metric, tags, value);
+        if (shouldEmit(metric, tags, value))
+            root.gauge(metric, value, tags);
+    }
+
+    @Override
+    public void gauge(String metric, double value, Tags tags) {
+        store(metric, tags, value);
+        if (shouldEmit(metric, tags, value))
+            root.gauge(metric, value, tags);
+    }
+
+    @Override
+    public Recorder scoped(String prefix, Tags tags) {
+        return root.scoped(prefix, tags);
+    }
+
+    @Override
+    protected void onError(Exception e) {
+        root.onError(e);
+    }
+}
@@ -0,0 +1,149 @@
+package com.wizzardo.metrics;
+
+import com.wizzardo.tools.interfaces.Filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of live threads by id with their names and resolved group names.
+ * It is refreshed with a single enumeration of all threads when an unknown id is requested, at most once per tick for each unknown id,
+ * so resolving groups for many new threads costs one enumeration per tick instead of one per thread,
+ * and a thread started after the last refresh is still found.
+ * Results of {@link JvmMonitoring#resolveThreadGroupName} are cached per thread name and actual group.
+ */
+public class ThreadRegistry {
+
+    protected static final int NAMES_CACHE_LIMIT = 10000;
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final LongMap<Entry> threads = new LongMap<>(64);
+    protected final Map<String, String> resolved = new HashMap<>();
+    protected final LongMap<Boolean> missed = new LongMap<>();
+    protected Thread[] buffer = new Thread[64];
+    protected volatile int tick;
+    protected int refreshedAt = -1;
+    protected int generation;
+
+    public static class Entry {
+        public final long id;
+        public final String name;
+        public final String group;
+        int generation;
+
+        Entry(long id, String name, String group) {
+            this.id = id;
+            this.name = name;
+            this.group = group;
+        }
+    }
+
+    public ThreadRegistry(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    /**
+     * Allows the next lookup of an unknown id to refresh the index
+     **/
+    public void nextTick() {
+        tick++;
+    }
+
+    /**
+     * @return entry of a live thread or null if there is no such thread
+     **/
+    public synchronized Entry get(long id) {
+        Entry entry = threads.get(id);
+        if (entry != null)
+            return entry;
+
+        if (refreshedAt != tick)
+            missed.clear();
+        else if (missed.contains(id))
+            return null;
+
+        refresh();
+        entry = threads.get(id);
+        if (entry == null)
+            missed.put(id, Boolean.TRUE);
+        return entry;
+    }
+
+    /**
+     * @return resolved group of the thread, falls back to resolving the given name against the root group if the thread is not alive anymore
+     **/
+    public String getGroup(long id, String threadName) {
+        Entry entry = get(id);
+        if (entry != null)
+            return entry.group;
+
+        synchronized (this) {
+            return resolve(threadName, rootGroup().getName());
+        }
+    }
+
+    public synchronized void refresh() {
+        refreshedAt = tick;
+        final int generation = ++this.generation;
+
+        ThreadGroup root = rootGroup();
+        Thread[] buffer = this.buffer;
+        int count;
+        while ((count = root.enumerate(buffer, true)) == buffer.length) {
+            buffer = new Thread[buffer.length * 2];
+        }
+        this.buffer = buffer;
+
+        for (int i = 0; i < count; i++) {
+            Thread thread = buffer[i];
+            buffer[i] = null;
+            long id = thread.getId();
+            String name = thread.getName();
+            Entry entry = threads.get(id);
+            if (entry == null || !entry.name.equals(name)) {
+                ThreadGroup group = thread.getThreadGroup();
+                entry = new Entry(id, name, resolve(name, group != null ? group.getName() : root.getName()));
+                threads.put(id, entry);
+            }
+            entry.generation = generation;
+        }
+
+        threads.retain(new Filter<Entry>() {
+            @Override
+            public boolean allow(Entry entry) {
+                return entry.generation == generation;
+            }
+        });
+    }
+
+    protected String resolve(String threadName, String actualGroup) {
+        String key = threadName + '\n' + actualGroup;
+        String group = resolved.get(key);
+        if (group == null) {
+            group = jvmMonitoring.resolveThreadGroupName(threadName, actualGroup);
+            if (resolved.size() >= NAMES_CACHE_LIMIT)
+                resolved.clear();
+            resolved.put(key, group);
+        }
+        return group;
+    }
+
+    /**
+     * Drops cached results of custom group resolvers, called when a resolver is added
+     **/
+    public synchronized void invalidate() {
+        resolved.clear();
+        threads.clear();
+    }
+
+    public synchronized int size() {
+        return threads.size();
+    }
+
+    protected static ThreadGroup rootGroup() {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        while (group.getParent() != null)
+            group = group.getParent();
+        return group;
+    }
+}
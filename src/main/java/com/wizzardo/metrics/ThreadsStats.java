@@ -1,8 +1,10 @@
 package com.wizzardo.metrics;
 
+import com.wizzardo.tools.interfaces.Filter;
+
 import java.lang.management.ThreadInfo;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -10,8 +12,12 @@ import java.util.Map;
  */
 public class ThreadsStats implements JvmMonitoring.Recordable {
     com.sun.management.ThreadMXBean threadMXBean;
-    Map<Long, TInfo> threads = new HashMap<>(32, 1);
+    LongMap<TInfo> threads = new LongMap<>(32);
+    Map<String, GroupInfo> groups = new HashMap<>();
     int tickCounter = 0;
+    int profilerGeneration;
+    TInfo[] topCpu = new TInfo[0];
+    TInfo[] topAllocation = new TInfo[0];
     JvmMonitoring jvmMonitoring;
 
     @Override
@@ -31,6 +37,27 @@ public class ThreadsStats implements JvmMonitoring.Recordable {
         boolean profiling;
         boolean profilingDisabled = false;
         Recorder.Tags tags;
+        long allocationDelta;
+        long cpuDelta;
+        long userDelta;
+        long elapsed;
+    }
+
+    /**
+     * Sums of all threads of a group during one interval, used when {@link JvmMonitoring#aggregateThreadMetrics} is enabled
+     **/
+    public static class GroupInfo {
+        final Recorder.Tags tags;
+        int threads;
+        long allocation;
+        long cpu;
+        long user;
+        double cpuPercent;
+        double userPercent;
+
+        GroupInfo(String group) {
+            tags = Recorder.Tags.of("group", group);
+        }
     }
 
     public ThreadsStats(com.sun.management.ThreadMXBean threadMXBean, JvmMonitoring jvmMonitoring) {
@@ -42,7 +69,20 @@ public class ThreadsStats implements JvmMonitoring.Recordable {
     public void record(Recorder recorder) {
         tickCounter++;
         boolean profilerEnabled = jvmMonitoring.profilerEnabled;
+        int profilerGeneration = jvmMonitoring.profilerGeneration;
+        boolean profilerStopped = profilerGeneration != this.profilerGeneration;
+        this.profilerGeneration = profilerGeneration;
+        boolean perThreadMetricsEnabled = jvmMonitoring.perThreadMetricsEnabled;
+        boolean aggregated = jvmMonitoring.aggregateThreadMetrics;
+        int topN = aggregated ? jvmMonitoring.threadsTopN : 0;
+        if (topCpu.length != topN) {
+            topCpu = new TInfo[topN];
+            topAllocation = new TInfo[topN];
+        }
+        TInfo[] topCpu = this.topCpu;
+        TInfo[] topAllocation = this.topAllocation;
 
+        // platform threads only, virtual threads never get per-thread metrics or reach the profiler
         long[] ids = threadMXBean.getAllThreadIds();
         long[] allocatedBytes = threadMXBean.getThreadAllocatedBytes(ids);
         long[] threadUserTime = threadMXBean.getThreadUserTime(ids);
@@ -71,19 +111,27 @@ public class ThreadsStats implements JvmMonitoring.Recordable {
 
                 threads.put(id, tInfo);
                 tInfo.name = threadInfo.getThreadName();
-                tInfo.group = jvmMonitoring.resolveThreadGroupName(tInfo.name, JvmMonitoring.threadGroup(id).getName());
+                tInfo.group = jvmMonitoring.getThreadGroupName(id, tInfo.name);
 
                 tInfo.tags = jvmMonitoring.getTags(tInfo);
                 if (tInfo.name.equals("DestroyJavaVM") || tInfo.name.equals("Profiler"))
                     tInfo.profilingDisabled = true;
-            } else {
-                recorder.histogram(jvmMonitoring.metricJvmThreadAllocation, bytesAllocated - tInfo.bytesAllocated, tInfo.tags);
-                recorder.histogram(jvmMonitoring.metricJvmThreadCpu, (cpuTime - tInfo.cpuTime) * 100d / (now - tInfo.lastRecord), tInfo.tags);
-                recorder.histogram(jvmMonitoring.metricJvmThreadCpuUser, (userTime - tInfo.userTime) * 100d / (now - tInfo.lastRecord), tInfo.tags);
-                recorder.histogram(jvmMonitoring.metricJvmThreadCpuNanos, (cpuTime - tInfo.cpuTime), tInfo.tags);
-                recorder.histogram(jvmMonitoring.metricJvmThreadCpuUserNanos, (userTime - tInfo.userTime), tInfo.tags);
+            } else if (perThreadMetricsEnabled) {
+                tInfo.allocationDelta = bytesAllocated - tInfo.bytesAllocated;
+                tInfo.cpuDelta = cpuTime - tInfo.cpuTime;
+                tInfo.userDelta = userTime - tInfo.userTime;
+                tInfo.elapsed = now - tInfo.lastRecord;
+                if (aggregated) {
+                    aggregate(tInfo);
+                    top(topCpu, tInfo, true);
+                    top(topAllocation, tInfo, false);
+                } else
+                    record(recorder, tInfo);
             }
 
+            if (profilerStopped)
+                tInfo.profiling = false;
+
             if (profilerEnabled && !tInfo.profilingDisabled) {
                 if (tInfo.lastRecord != 0 && (cpuTime - tInfo.cpuTime) * 100d / (now - tInfo.lastRecord) >= 5) {
                     if (!tInfo.profiling) {
@@ -103,14 +151,85 @@ public class ThreadsStats implements JvmMonitoring.Recordable {
             tInfo.lastRecord = now;
         }
 
-        if (tickCounter >= 30) {
-            Iterator<Map.Entry<Long, TInfo>> iterator = threads.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Long, TInfo> next = iterator.next();
-                if (next.getValue().tick != tickCounter)
-                    iterator.remove();
+        if (aggregated && perThreadMetricsEnabled) {
+            for (GroupInfo group : groups.values()) {
+                if (group.threads != 0) {
+                    recorder.histogram(jvmMonitoring.metricJvmThreadGroupAllocation, group.allocation, group.tags);
+                    recorder.histogram(jvmMonitoring.metricJvmThreadGroupCpu, group.cpuPercent, group.tags);
+                    recorder.histogram(jvmMonitoring.metricJvmThreadGroupCpuUser, group.userPercent, group.tags);
+                    recorder.histogram(jvmMonitoring.metricJvmThreadGroupCpuNanos, group.cpu, group.tags);
+                    recorder.histogram(jvmMonitoring.metricJvmThreadGroupCpuUserNanos, group.user, group.tags);
+                }
+                group.threads = 0;
+                group.allocation = 0;
+                group.cpu = 0;
+                group.user = 0;
+                group.cpuPercent = 0;
+                group.userPercent = 0;
+            }
+
+            for (int i = 0; i < topN && topCpu[i] != null; i++) {
+                record(recorder, topCpu[i]);
+            }
+            outer:
+            for (int i = 0; i < topN && topAllocation[i] != null; i++) {
+                for (int j = 0; j < topN && topCpu[j] != null; j++) {
+                    if (topCpu[j] == topAllocation[i])
+                        continue outer;
+                }
+                record(recorder, topAllocation[i]);
             }
+            Arrays.fill(topCpu, null);
+            Arrays.fill(topAllocation, null);
+        }
+
+        if (tickCounter >= 30) {
+            final int tick = tickCounter;
+            threads.retain(new Filter<TInfo>() {
+                @Override
+                public boolean allow(TInfo tInfo) {
+                    return tInfo.tick == tick;
+                }
+            });
             tickCounter = 0;
         }
     }
+
+    protected void record(Recorder recorder, TInfo tInfo) {
+        recorder.histogram(jvmMonitoring.metricJvmThreadAllocation, tInfo.allocationDelta, tInfo.tags);
+        recorder.histogram(jvmMonitoring.metricJvmThreadCpu, tInfo.cpuDelta * 100d / tInfo.elapsed, tInfo.tags);
+        recorder.histogram(jvmMonitoring.metricJvmThreadCpuUser, tInfo.userDelta * 100d / tInfo.elapsed, tInfo.tags);
+        recorder.histogram(jvmMonitoring.metricJvmThreadCpuNanos, tInfo.cpuDelta, tInfo.tags);
+        recorder.histogram(jvmMonitoring.metricJvmThreadCpuUserNanos, tInfo.userDelta, tInfo.tags);
+    }
+
+    protected void aggregate(TInfo tInfo) {
+        GroupInfo group = groups.get(tInfo.group);
+        if (group == null)
+            groups.put(tInfo.group, group = new GroupInfo(tInfo.group));
+
+        group.threads++;
+        group.allocation += tInfo.allocationDelta;
+        group.cpu += tInfo.cpuDelta;
+        group.user += tInfo.userDelta;
+        group.cpuPercent += tInfo.cpuDelta * 100d / tInfo.elapsed;
+        group.userPercent += tInfo.userDelta * 100d / tInfo.elapsed;
+    }
+
+    /**
+     * Keeps top threads sorted in descending order of cpu time or allocation during the interval
+     **/
+    protected static void top(TInfo[] top, TInfo tInfo, boolean byCpu) {
+        int n = top.length;
+        long value = byCpu ? tInfo.cpuDelta : tInfo.allocationDelta;
+        if (n == 0 || value <= 0 || top[n - 1] != null && (byCpu ? top[n - 1].cpuDelta : top[n - 1].allocationDelta) >= value)
+            return;
+
+        int i = n - 1;
+        while (i > 0 && (top[i - 1] == null || (byCpu ? top[i - 1].cpuDelta : top[i - 1].allocationDelta) < value)) {
+            top[i] = top[i - 1];
+            i--;
+        }
+        top[i] = tInfo;
+    }
 }
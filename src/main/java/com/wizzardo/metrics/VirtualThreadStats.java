@@ -0,0 +1,48 @@
+package com.wizzardo.metrics;
+
+/**
+ * Reports state of the virtual thread scheduler and durations of virtual threads pinned to their carriers.
+ * Virtual threads are available since JDK 21, the implementation is packaged in META-INF/versions/21 of the multi-release jar,
+ * this class is a no-op fallback for older versions.
+ */
+public class VirtualThreadStats implements JvmMonitoring.Recordable {
+
+    protected final JvmMonitoring jvmMonitoring;
+
+    public VirtualThreadStats(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+    }
+
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Per-thread cpu time, allocation and stack sampling are not available for virtual threads, callers use it to skip them
+     **/
+    public static boolean isVirtual(Thread thread) {
+        return false;
+    }
+
+    /**
+     * @return true if state of the virtual thread scheduler can be read
+     **/
+    public boolean isSchedulerAvailable() {
+        return false;
+    }
+
+    public void start() {
+    }
+
+    public void stop() {
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+    }
+
+    @Override
+    public boolean isValid() {
+        return false;
+    }
+}
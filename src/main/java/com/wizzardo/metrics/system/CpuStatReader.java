@@ -3,9 +3,6 @@ package com.wizzardo.metrics.system;
 import com.wizzardo.metrics.JvmMonitoring;
 import com.wizzardo.metrics.Recorder;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-
 import static com.wizzardo.metrics.system.Utils.*;
 
 /**
@@ -16,6 +13,7 @@ public class CpuStatReader {
     protected byte[] buffer = new byte[10240];
     protected int[] intHolder = new int[1];
     protected long SC_CLK_TCK_MS = 10;
+    protected volatile boolean perCoreEnabled = true;
 
     public CpuStatReader() {
         int userHz = getUserHz();
@@ -50,18 +48,15 @@ public class CpuStatReader {
     }
 
     public int getUserHz() {
-        try {
-            File file = new File("/tmp/CLK_TCK.sh");
-            try (FileOutputStream out = new FileOutputStream(file)) {
-                out.write("echo $(getconf CLK_TCK)".getBytes(StandardCharsets.UTF_8));
-            }
-            String exec = Utils.exec("bash " + file.getAbsolutePath());
-            return Integer.parseInt(exec);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        return Utils.getUserHz();
+    }
 
-        return -1;
+    public boolean isPerCoreEnabled() {
+        return perCoreEnabled;
+    }
+
+    public void setPerCoreEnabled(boolean perCoreEnabled) {
+        this.perCoreEnabled = perCoreEnabled;
     }
 
     public JvmMonitoring.Recordable createRecordable() {
@@ -98,9 +93,10 @@ public class CpuStatReader {
                 diff(prev, next);
 
                 CpuStatReader.this.record(prev[0], recorder, timeMs);
-                for (int i = 1; i < prev.length; i++) {
-                    recordWithCore(prev[i], recorder, timeMs, tags[i]);
-                }
+                if (perCoreEnabled)
+                    for (int i = 1; i < prev.length; i++) {
+                        recordWithCore(prev[i], recorder, timeMs, tags[i]);
+                    }
 
                 CpuStats[] temp = prev;
                 prev = next;
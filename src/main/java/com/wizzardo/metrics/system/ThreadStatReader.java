@@ -0,0 +1,347 @@
+package com.wizzardo.metrics.system;
+
+import com.wizzardo.metrics.JvmMonitoring;
+import com.wizzardo.metrics.Recorder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.wizzardo.metrics.system.Utils.*;
+
+/**
+ * Reads cpu usage of every native thread of the process from /proc/self/task/[tid]/stat and schedstat
+ * and context switches from status, including GC, JIT compiler and other VM threads that are not visible to ThreadMXBean.
+ * Cpu and run queue wait are reported as percent of one core, context switches as a rate per second.
+ * Threads are grouped by their native name (comm) without trailing numbers, e.g. 'G1 Conc#0' and 'G1 Conc#1' are 'G1 Conc'.
+ * Paths of known tasks and the read buffer are reused between scans, names are compared in place and re-read only when they change.
+ */
+public class ThreadStatReader {
+    protected static final String TASKS = "/proc/self/task";
+    protected static final byte[] VOLUNTARY = "voluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] INVOLUNTARY = "nonvoluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII);
+
+    protected final File tasksDir = new File(TASKS);
+    protected final Map<String, TaskStats> tasks = new HashMap<>();
+    protected final Map<String, GroupStats> groups = new HashMap<>();
+    protected byte[] buffer = new byte[4096];
+    protected long[] longHolder = new long[1];
+    protected long SC_CLK_TCK_MS = 10;
+    protected int scan;
+
+    // values of the task being read, copied into TaskStats only if both files were read
+    protected long utime;
+    protected long stime;
+    protected long runTime;
+    protected long waitTime;
+    protected long switches;
+    protected long involuntarySwitches;
+    protected int commFrom;
+    protected int commTo;
+
+    public ThreadStatReader() {
+        int userHz = getUserHz();
+        if (userHz > 0) {
+            SC_CLK_TCK_MS = 1000 / userHz;
+        }
+    }
+
+    public static class TaskStats {
+        public String comm;
+        public String group;
+        public long utime;
+        public long stime;
+        public long runTime;
+        public long waitTime;
+        public long switches;
+        public long involuntarySwitches;
+        final String statPath;
+        final String schedstatPath;
+        final String statusPath;
+        int scan;
+
+        TaskStats(String tid) {
+            statPath = TASKS + "/" + tid + "/stat";
+            schedstatPath = TASKS + "/" + tid + "/schedstat";
+            statusPath = TASKS + "/" + tid + "/status";
+        }
+    }
+
+    public static class GroupStats {
+        public final String name;
+        public int threads;
+        public long utime;
+        public long stime;
+        public long runTime;
+        public long waitTime;
+        public long switches;
+        public long involuntarySwitches;
+        final Recorder.Tags tags;
+
+        GroupStats(String name) {
+            this.name = name;
+            tags = Recorder.Tags.of("comm", name);
+        }
+
+        void reset() {
+            threads = 0;
+            utime = 0;
+            stime = 0;
+            runTime = 0;
+            waitTime = 0;
+            switches = 0;
+            involuntarySwitches = 0;
+        }
+    }
+
+    public boolean isSupported() {
+        return tasksDir.isDirectory();
+    }
+
+    /**
+     * Scans all tasks and sums deltas since the previous scan per group, tasks seen for the first time count only from the next scan
+     **/
+    public Map<String, GroupStats> read() {
+        for (GroupStats group : groups.values()) {
+            group.reset();
+        }
+
+        String[] tids = tasksDir.list();
+        if (tids == null)
+            return groups;
+
+        int scan = ++this.scan;
+        for (String tid : tids) {
+            TaskStats task = tasks.get(tid);
+            boolean known = task != null;
+            if (!known)
+                task = new TaskStats(tid);
+
+            // stat is read last, so the name is still in the buffer
+            if (!readStatus(task) || !readSchedstat(task) || !readStat(task))
+                continue;
+
+            // the JVM names native threads after they start, so the name is checked on every scan
+            if (task.comm == null || !equals(task.comm, buffer, commFrom, commTo)) {
+                task.comm = new String(buffer, commFrom, commTo - commFrom);
+                task.group = group(task.comm);
+            }
+
+            task.scan = scan;
+            if (known) {
+                GroupStats group = groups.get(task.group);
+                if (group == null)
+                    groups.put(task.group, group = new GroupStats(task.group));
+
+                group.threads++;
+                group.utime += utime - task.utime;
+                group.stime += stime - task.stime;
+                group.runTime += runTime - task.runTime;
+                group.waitTime += waitTime - task.waitTime;
+                group.switches += switches - task.switches;
+                group.involuntarySwitches += involuntarySwitches - task.involuntarySwitches;
+            } else
+                tasks.put(tid, task);
+
+            task.utime = utime;
+            task.stime = stime;
+            task.runTime = runTime;
+            task.waitTime = waitTime;
+            task.switches = switches;
+            task.involuntarySwitches = involuntarySwitches;
+        }
+
+        Iterator<TaskStats> iterator = tasks.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().scan != scan)
+                iterator.remove();
+        }
+
+        Iterator<GroupStats> groupIterator = groups.values().iterator();
+        while (groupIterator.hasNext()) {
+            if (groupIterator.next().threads == 0)
+                groupIterator.remove();
+        }
+        return groups;
+    }
+
+    protected static boolean equals(String s, byte[] bytes, int from, int to) {
+        if (s.length() != to - from)
+            return false;
+
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i - from) != (bytes[i] & 0xff))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Strips trailing digits and separators, so workers of the same pool end up in the same group
+     **/
+    protected String group(String comm) {
+        int end = comm.length();
+        while (end > 0) {
+            char c = comm.charAt(end - 1);
+            if ((c >= '0' && c <= '9') || c == '#' || c == '-' || c == '_' || c == ' ')
+                end--;
+            else
+                break;
+        }
+        return end == 0 ? comm : comm.substring(0, end);
+    }
+
+    protected boolean readStat(TaskStats task) {
+        byte[] buffer = this.buffer;
+        int limit = read(task.statPath, buffer);
+        if (limit <= 0)
+            return false;
+
+        int open = indexOf((byte) '(', buffer, 0, limit);
+        int close = limit - 1;
+        while (close > open && buffer[close] != ')')
+            close--;
+        if (open == -1 || close <= open)
+            return false;
+
+        commFrom = open + 1;
+        commTo = close;
+
+        // fields after comm: state(3) ... utime(14) stime(15)
+        int position = close + 1;
+        for (int field = 3; field < 14; field++) {
+            position = skipValue(buffer, position, limit);
+            if (position == -1)
+                return false;
+        }
+        position = indexOfNot((byte) ' ', buffer, position, limit);
+        if (position == -1)
+            return false;
+
+        position = readLong(longHolder, buffer, position, limit);
+        utime = longHolder[0];
+        position = readLong(longHolder, buffer, position, limit);
+        stime = longHolder[0];
+        return position <= limit;
+    }
+
+    /**
+     * schedstat contains time on cpu (ns), time waiting on a run queue (ns) and number of timeslices, the last one is not used
+     **/
+    protected boolean readSchedstat(TaskStats task) {
+        byte[] buffer = this.buffer;
+        int limit = read(task.schedstatPath, buffer);
+        if (limit <= 0)
+            return false;
+
+        int position = readLong(longHolder, buffer, 0, limit);
+        runTime = longHolder[0];
+        position = readLong(longHolder, buffer, position, limit);
+        waitTime = longHolder[0];
+        return position <= limit;
+    }
+
+    /**
+     * Context switches are the last lines of status: 'voluntary_ctxt_switches' and 'nonvoluntary_ctxt_switches',
+     * switches counts both of them
+     **/
+    protected boolean readStatus(TaskStats task) {
+        byte[] buffer = this.buffer;
+        int limit = read(task.statusPath, buffer);
+        if (limit <= 0 || limit == buffer.length)
+            return false;
+
+        int voluntary = valueOf(VOLUNTARY, buffer, limit);
+        int involuntary = valueOf(INVOLUNTARY, buffer, limit);
+        if (voluntary == -1 || involuntary == -1)
+            return false;
+
+        readLong(longHolder, buffer, voluntary, limit);
+        long switches = longHolder[0];
+        readLong(longHolder, buffer, involuntary, limit);
+        involuntarySwitches = longHolder[0];
+        this.switches = switches + involuntarySwitches;
+        return true;
+    }
+
+    /**
+     * @return position of the value of a line that starts with the key, or -1
+     **/
+    protected static int valueOf(byte[] key, byte[] buffer, int limit) {
+        int position = 0;
+        while (position < limit) {
+            if (startsWith(key, buffer, position, limit)) {
+                position = indexOfNot((byte) '\t', buffer, position + key.length, limit);
+                return position == -1 ? -1 : indexOfNot((byte) ' ', buffer, position, limit);
+            }
+            position = indexOf((byte) '\n', buffer, position, limit);
+            if (position == -1)
+                return -1;
+            position++;
+        }
+        return -1;
+    }
+
+    protected static boolean startsWith(byte[] prefix, byte[] buffer, int position, int limit) {
+        if (limit - position < prefix.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[position + i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tasks may exit between listing and reading, so missing files are expected and not logged
+     **/
+    protected static int read(String path, byte[] bytes) {
+        try (FileInputStream in = new FileInputStream(path)) {
+            return in.read(bytes);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public JvmMonitoring.Recordable createRecordable() {
+        return new JvmMonitoring.Recordable() {
+            long time;
+
+            {
+                time = System.nanoTime();
+                read();
+            }
+
+            @Override
+            public void record(Recorder recorder) {
+                Map<String, GroupStats> groups = read();
+                long time = System.nanoTime();
+                long timeMs = Math.max((time - this.time) / 1000 / 1000, 1);
+                this.time = time;
+
+                for (GroupStats group : groups.values()) {
+                    if (group.threads == 0)
+                        continue;
+
+                    recorder.gauge("system.thread.count", group.threads, group.tags);
+                    recorder.gauge("system.thread.cpu", group.runTime / 10000d / timeMs, group.tags);
+                    recorder.gauge("system.thread.cpu.user", group.utime * 100d * SC_CLK_TCK_MS / timeMs, group.tags);
+                    recorder.gauge("system.thread.cpu.system", group.stime * 100d * SC_CLK_TCK_MS / timeMs, group.tags);
+                    recorder.gauge("system.thread.runqueue.wait", group.waitTime / 10000d / timeMs, group.tags);
+                    recorder.gauge("system.thread.switches", group.switches * 1000d / timeMs, group.tags);
+                    recorder.gauge("system.thread.switches.involuntary", group.involuntarySwitches * 1000d / timeMs, group.tags);
+                }
+            }
+
+            @Override
+            public boolean isValid() {
+                return true;
+            }
+        };
+    }
+}
@@ -1,7 +1,9 @@
 package com.wizzardo.metrics.system;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -37,6 +39,24 @@ public class Utils {
     }
 
 
+    /**
+     * @return USER_HZ, the unit of cpu times in /proc, or -1 if it cannot be determined
+     **/
+    public static int getUserHz() {
+        try {
+            File file = new File("/tmp/CLK_TCK.sh");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write("echo $(getconf CLK_TCK)".getBytes(StandardCharsets.UTF_8));
+            }
+            String exec = Utils.exec("bash " + file.getAbsolutePath());
+            return Integer.parseInt(exec);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
     protected static void checkPosition(byte[] buffer, int position, int limit) {
         if (position == -1 || position > limit)
             throw new IllegalStateException("Cannot parse: " + new String(buffer, 0, limit));
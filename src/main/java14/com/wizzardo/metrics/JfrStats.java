@@ -0,0 +1,157 @@
+package com.wizzardo.metrics;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregates events of JDK Flight Recorder streamed with {@link RecordingStream}:
+ * gc pauses, time to safepoint and safepoint pauses, contended monitor enter and thread park by class,
+ * sampled allocation and cpu load. Events are folded into timers and counters of its own {@link MetricRegistry}
+ * on the stream thread and flushed once per interval.
+ * Monitor and park timers are tagged by class, the first {@link #CLASSES_LIMIT} classes of each get their own series, the rest go to 'other'.
+ */
+public class JfrStats implements JvmMonitoring.Recordable {
+
+    protected static final int CLASSES_LIMIT = 100;
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final MetricRegistry registry = new MetricRegistry();
+    protected final Map<String, MetricRegistry.Timer> timers = new HashMap<>();
+    protected final Map<String, MetricRegistry.Timer> monitorTimers = new HashMap<>();
+    protected final Map<String, MetricRegistry.Timer> parkTimers = new HashMap<>();
+    protected final MetricRegistry.Counter allocation;
+    protected volatile RecordingStream stream;
+    protected volatile double cpuUser;
+    protected volatile double cpuSystem;
+    protected volatile double cpuMachine;
+    protected long safepointId = -1;
+    protected long safepointStart;
+
+    public JfrStats(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+        allocation = registry.counter(jvmMonitoring.metricJvmJfrAllocation, null);
+        registry.gauge(jvmMonitoring.metricJvmJfrCpuUser, null, () -> cpuUser);
+        registry.gauge(jvmMonitoring.metricJvmJfrCpuSystem, null, () -> cpuSystem);
+        registry.gauge(jvmMonitoring.metricJvmJfrCpuMachine, null, () -> cpuMachine);
+    }
+
+    public static boolean isSupported() {
+        try {
+            return FlightRecorder.isAvailable();
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    public synchronized void start() {
+        if (stream != null)
+            return;
+
+        Duration threshold = Duration.ofMillis(jvmMonitoring.jfrThreshold);
+        RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.GarbageCollection");
+        stream.enable("jdk.SafepointBegin");
+        stream.enable("jdk.SafepointEnd");
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(threshold).withoutStackTrace();
+        stream.enable("jdk.ThreadPark").withThreshold(threshold).withoutStackTrace();
+        stream.enable("jdk.ObjectAllocationSample").with("throttle", "150/s").withoutStackTrace();
+        stream.enable("jdk.CPULoad").withPeriod(Duration.ofSeconds(1));
+
+        stream.onEvent("jdk.GarbageCollection", event -> timer(jvmMonitoring.metricJvmJfrGcPause, "gc", event.getString("name"), "cause", event.getString("cause"))
+                .record(event.getDuration("sumOfPauses").toNanos()));
+        stream.onEvent("jdk.SafepointBegin", this::onSafepointBegin);
+        stream.onEvent("jdk.SafepointEnd", this::onSafepointEnd);
+        stream.onEvent("jdk.JavaMonitorEnter", event -> timer(monitorTimers, jvmMonitoring.metricJvmJfrMonitorEnter, "monitorClass", className(event.getClass("monitorClass")))
+                .record(event.getDuration().toNanos()));
+        stream.onEvent("jdk.ThreadPark", event -> timer(parkTimers, jvmMonitoring.metricJvmJfrThreadPark, "parkedClass", className(event.getClass("parkedClass")))
+                .record(event.getDuration().toNanos()));
+        stream.onEvent("jdk.ObjectAllocationSample", event -> allocation.add(event.getLong("weight")));
+        stream.onEvent("jdk.CPULoad", event -> {
+            cpuUser = event.getFloat("jvmUser");
+            cpuSystem = event.getFloat("jvmSystem");
+            cpuMachine = event.getFloat("machineTotal");
+        });
+
+        stream.startAsync();
+        this.stream = stream;
+    }
+
+    public synchronized void stop() {
+        RecordingStream stream = this.stream;
+        if (stream == null)
+            return;
+
+        stream.close();
+        this.stream = null;
+    }
+
+    protected void onSafepointBegin(RecordedEvent event) {
+        safepointId = event.getLong("safepointId");
+        safepointStart = toNanos(event.getStartTime());
+        timer(jvmMonitoring.metricJvmJfrSafepointSync).record(event.getDuration().toNanos());
+    }
+
+    protected void onSafepointEnd(RecordedEvent event) {
+        if (event.getLong("safepointId") != safepointId)
+            return;
+
+        safepointId = -1;
+        timer(jvmMonitoring.metricJvmJfrSafepointPause).record(Math.max(toNanos(event.getEndTime()) - safepointStart, 0));
+    }
+
+    protected static long toNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    protected static String className(RecordedClass c) {
+        return c == null ? "unknown" : c.getName();
+    }
+
+    /**
+     * Called only from the stream thread, so the cache doesn't need synchronization
+     **/
+    protected MetricRegistry.Timer timer(String metric, String... tags) {
+        String key = tags.length == 0 ? metric : metric + '|' + String.join("|", tags);
+        MetricRegistry.Timer timer = timers.get(key);
+        if (timer == null) {
+            Recorder.Tags t = null;
+            for (int i = 0; i < tags.length; i += 2) {
+                t = t == null ? Recorder.Tags.of(tags[i], tags[i + 1]) : t.add(tags[i], tags[i + 1]);
+            }
+            timers.put(key, timer = registry.timer(metric, t));
+        }
+        return timer;
+    }
+
+    /**
+     * Called only from the stream thread, class names are unbounded, so only the first {@link #CLASSES_LIMIT} get their own timer
+     **/
+    protected MetricRegistry.Timer timer(Map<String, MetricRegistry.Timer> timers, String metric, String tag, String className) {
+        MetricRegistry.Timer timer = timers.get(className);
+        if (timer == null) {
+            if (timers.size() >= CLASSES_LIMIT)
+                className = "other";
+            timer = timers.get(className);
+            if (timer == null)
+                timers.put(className, timer = registry.timer(metric, Recorder.Tags.of(tag, className)));
+        }
+        return timer;
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        registry.record(recorder);
+    }
+
+    @Override
+    public boolean isValid() {
+        return stream != null;
+    }
+}
@@ -0,0 +1,160 @@
+package com.wizzardo.metrics;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports parallelism, carrier pool size, queued tasks and mounted virtual threads of the default scheduler,
+ * read from the VirtualThreadScheduler MBean on JDK 24+ or from the scheduler's ForkJoinPool if java.lang is opened to this module
+ * (--add-opens java.base/java.lang=ALL-UNNAMED), otherwise only pinning is reported.
+ * The ForkJoinPool doesn't know about virtual threads, so there the mounted count is approximated by the number of active carrier threads
+ * and the queued count by tasks queued in the pool.
+ * Pinning is streamed from jdk.VirtualThreadPinned events and aggregated into timers by the first frame outside of the JDK.
+ */
+public class VirtualThreadStats implements JvmMonitoring.Recordable {
+
+    protected static final String SCHEDULER_MBEAN = "jdk.management:type=VirtualThreadScheduler";
+    protected static final int FRAMES_LIMIT = 100;
+
+    protected final JvmMonitoring jvmMonitoring;
+    protected final MetricRegistry registry = new MetricRegistry();
+    protected final Map<String, MetricRegistry.Timer> pinned = new HashMap<>();
+    protected final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    protected ObjectName schedulerMBean;
+    protected ForkJoinPool scheduler;
+    protected volatile RecordingStream stream;
+
+    public VirtualThreadStats(JvmMonitoring jvmMonitoring) {
+        this.jvmMonitoring = jvmMonitoring;
+        try {
+            ObjectName name = new ObjectName(SCHEDULER_MBEAN);
+            if (server.isRegistered(name))
+                schedulerMBean = name;
+        } catch (Exception ignored) {
+        }
+
+        if (schedulerMBean == null) {
+            try {
+                Field field = Class.forName("java.lang.VirtualThread").getDeclaredField("DEFAULT_SCHEDULER");
+                field.setAccessible(true);
+                scheduler = (ForkJoinPool) field.get(null);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        return thread.isVirtual();
+    }
+
+    /**
+     * @return true if state of the virtual thread scheduler can be read
+     **/
+    public boolean isSchedulerAvailable() {
+        return schedulerMBean != null || scheduler != null;
+    }
+
+    public synchronized void start() {
+        if (stream != null || !FlightRecorder.isAvailable())
+            return;
+
+        RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(jvmMonitoring.virtualThreadPinnedThreshold)).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+        this.stream = stream;
+    }
+
+    public synchronized void stop() {
+        RecordingStream stream = this.stream;
+        if (stream == null)
+            return;
+
+        stream.close();
+        this.stream = null;
+    }
+
+    /**
+     * Called only from the stream thread, so the cache doesn't need synchronization
+     **/
+    protected void onPinned(RecordedEvent event) {
+        String frame = frame(event.getStackTrace());
+        MetricRegistry.Timer timer = pinned.get(frame);
+        if (timer == null) {
+            if (pinned.size() >= FRAMES_LIMIT)
+                frame = "other";
+            timer = pinned.get(frame);
+            if (timer == null)
+                pinned.put(frame, timer = registry.timer(jvmMonitoring.metricJvmVirtualPinned, Recorder.Tags.of("frame", frame)));
+        }
+        timer.record(event.getDuration().toNanos());
+    }
+
+    /**
+     * Top frames of a pinned thread are parking internals of the JDK, the first application frame is the one holding the monitor or calling native code
+     **/
+    protected static String frame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null)
+            return "unknown";
+
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        if (frames.isEmpty())
+            return "unknown";
+
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun."))
+                return name(frame.getMethod());
+        }
+        return name(frames.get(0).getMethod());
+    }
+
+    protected static String name(RecordedMethod method) {
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    @Override
+    public void record(Recorder recorder) {
+        if (schedulerMBean != null) {
+            try {
+                recorder.gauge(jvmMonitoring.metricJvmVirtualParallelism, ((Number) server.getAttribute(schedulerMBean, "Parallelism")).longValue());
+                recorder.gauge(jvmMonitoring.metricJvmVirtualPoolSize, ((Number) server.getAttribute(schedulerMBean, "PoolSize")).longValue());
+                recorder.gauge(jvmMonitoring.metricJvmVirtualQueued, ((Number) server.getAttribute(schedulerMBean, "QueuedVirtualThreadCount")).longValue());
+                recorder.gauge(jvmMonitoring.metricJvmVirtualMounted, ((Number) server.getAttribute(schedulerMBean, "MountedVirtualThreadCount")).longValue());
+            } catch (Exception ignored) {
+            }
+        } else if (scheduler != null) {
+            ForkJoinPool scheduler = this.scheduler;
+            recorder.gauge(jvmMonitoring.metricJvmVirtualParallelism, scheduler.getParallelism());
+            recorder.gauge(jvmMonitoring.metricJvmVirtualPoolSize, scheduler.getPoolSize());
+            recorder.gauge(jvmMonitoring.metricJvmVirtualQueued, scheduler.getQueuedSubmissionCount() + scheduler.getQueuedTaskCount());
+            // active carriers, each of them runs at most one mounted virtual thread
+            recorder.gauge(jvmMonitoring.metricJvmVirtualMounted, scheduler.getActiveThreadCount());
+        }
+
+        registry.record(recorder);
+    }
+
+    @Override
+    public boolean isValid() {
+        return stream != null || isSchedulerAvailable();
+    }
+}
@@ -0,0 +1,139 @@
+package com.wizzardo.metrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Samples in resources/nmt are outputs of 'VM.native_memory summary' captured from the DiagnosticCommand MBean of each JDK,
+ * jdk21-bytes.txt is printed by -XX:+PrintNMTStatistics on exit, without units
+ */
+public class NativeMemoryStatsTest {
+
+    static final long KB = 1024;
+
+    static Map<String, long[]> parse(String resource) throws IOException {
+        final Map<String, long[]> result = new LinkedHashMap<>();
+        NativeMemoryStats.parse(read("/nmt/" + resource), new NativeMemoryStats.Listener() {
+            @Override
+            public void onCategory(String category, long reserved, long committed) {
+                assertNull("duplicate category " + category, result.put(category, new long[]{reserved, committed}));
+            }
+        });
+        return result;
+    }
+
+    static String read(String resource) throws IOException {
+        try (InputStream in = NativeMemoryStatsTest.class.getResourceAsStream(resource)) {
+            assertNotNull(resource, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static void assertCategory(Map<String, long[]> categories, String name, long reserved, long committed) {
+        long[] values = categories.get(name);
+        assertNotNull("missing category " + name, values);
+        assertEquals(name + " reserved", reserved, values[0]);
+        assertEquals(name + " committed", committed, values[1]);
+    }
+
+    /**
+     * Sum of categories differs from the total only by rounding of each category to the unit
+     **/
+    static void assertSumMatchesTotal(Map<String, long[]> categories, long unit) {
+        long reserved = 0;
+        long committed = 0;
+        for (Map.Entry<String, long[]> entry : categories.entrySet()) {
+            if (entry.getKey().equals("Total"))
+                continue;
+            assertTrue(entry.getKey(), entry.getValue()[0] >= 0);
+            assertTrue(entry.getKey(), entry.getValue()[1] >= 0);
+            reserved += entry.getValue()[0];
+            committed += entry.getValue()[1];
+        }
+        long tolerance = unit * categories.size();
+        assertEquals(categories.get("Total")[0], reserved, tolerance);
+        assertEquals(categories.get("Total")[1], committed, tolerance);
+    }
+
+    @Test
+    public void jdk8() throws IOException {
+        Map<String, long[]> categories = parse("jdk8.txt");
+        assertEquals(11, categories.size());
+        assertCategory(categories, "Total", 2864098 * KB, 120570 * KB);
+        assertCategory(categories, "Java Heap", 1538048 * KB, 96256 * KB);
+        assertCategory(categories, "Thread", 9255 * KB, 9255 * KB);
+        assertSumMatchesTotal(categories, KB);
+    }
+
+    @Test
+    public void jdk11() throws IOException {
+        Map<String, long[]> categories = parse("jdk11.txt");
+        assertEquals(17, categories.size());
+        assertCategory(categories, "Total", 2867973 * KB, 121905 * KB);
+        assertCategory(categories, "Java Heap", 1538048 * KB, 96256 * KB);
+        assertCategory(categories, "Thread", 11315 * KB, 699 * KB);
+        assertSumMatchesTotal(categories, KB);
+    }
+
+    @Test
+    public void jdk17() throws IOException {
+        Map<String, long[]> categories = parse("jdk17.txt");
+        assertEquals(21, categories.size());
+        assertCategory(categories, "Total", 2939208 * KB, 124644 * KB);
+        assertCategory(categories, "Java Heap", 1538048 * KB, 96256 * KB);
+        assertCategory(categories, "Thread", 13348 * KB, 708 * KB);
+        assertCategory(categories, "Shared class space", 16384 * KB, 12056 * KB);
+        assertCategory(categories, "Metaspace", 65547 * KB, 2763 * KB);
+        assertSumMatchesTotal(categories, KB);
+    }
+
+    @Test
+    public void jdk21() throws IOException {
+        Map<String, long[]> categories = parse("jdk21.txt");
+        assertEquals(20, categories.size());
+        assertCategory(categories, "Total", 2941391 * KB, 129355 * KB);
+        assertCategory(categories, "Java Heap", 1538048 * KB, 96256 * KB);
+        assertCategory(categories, "Thread", 12325 * KB, 673 * KB);
+        assertCategory(categories, "Shared class space", 16384 * KB, 12960 * KB);
+        assertCategory(categories, "Metaspace", 65549 * KB, 3341 * KB);
+        assertSumMatchesTotal(categories, KB);
+    }
+
+    @Test
+    public void jdk21Bytes() throws IOException {
+        Map<String, long[]> categories = parse("jdk21-bytes.txt");
+        assertEquals(22, categories.size());
+        assertCategory(categories, "Total", 3003817799L, 122507079L);
+        assertCategory(categories, "Java Heap", 1574961152L, 98566144L);
+        assertCategory(categories, "Thread", 10520392L, 538440L);
+        assertCategory(categories, "Shared class space", 16777216L, 13271040L);
+        assertSumMatchesTotal(categories, 1);
+    }
+
+    @Test
+    public void units() {
+        final Map<String, long[]> result = new LinkedHashMap<>();
+        NativeMemoryStats.parse("Total: reserved=2GB, committed=3MB\n-  Code (reserved=5KB, committed=7)\n-  Broken (reserved=, committed=1KB)", new NativeMemoryStats.Listener() {
+            @Override
+            public void onCategory(String category, long reserved, long committed) {
+                result.put(category, new long[]{reserved, committed});
+            }
+        });
+        assertCategory(result, "Total", 2L << 30, 3L << 20);
+        assertCategory(result, "Code", 5 * KB, 7);
+        assertCategory(result, "Broken", -1, KB);
+    }
+}